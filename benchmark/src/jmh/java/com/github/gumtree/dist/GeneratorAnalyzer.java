@@ -0,0 +1,109 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtree.dist;
+
+import com.github.gumtreediff.client.Run;
+import com.github.gumtreediff.gen.Generators;
+import com.github.gumtreediff.gen.TreeGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the throughput of each tree generator on the files of a corpus it accepts.
+ * The files are read once in memory, so that only the parsing and the tree building are measured.
+ * An operation parses the whole corpus, the files and megabytes counters give the throughput
+ * in files and megabytes per second. Generators whose tool is unavailable, or which accept no file
+ * of the corpus, fail at setup: by default, the build only runs the ones that need no native tool
+ * (see the generator parameters of benchmark/build.gradle), on a corpus with a file of each language.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GeneratorAnalyzer {
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        // The generators that do not need a native tool, the build adds the other ones on demand
+        @Param({"java-jdt", "java-cdjdt", "java-javaparser", "js-rhino", "ruby-jruby", "css-phcss", "antlr-antlr",
+                "json-antlr", "php-antlr", "r-antlr", "xml-antlr"})
+        public String generator;
+
+        @Param({})
+        public String corpusPath;
+
+        public TreeGenerator treeGenerator;
+
+        public List<String> contents = new ArrayList<>();
+
+        public double megabytes;
+
+        @Setup
+        public void load() throws IOException {
+            Run.initGenerators();
+            treeGenerator = Generators.getInstance().getGenerator(generator);
+            List<Path> files;
+            try (Stream<Path> paths = Files.walk(Paths.get(corpusPath))) {
+                files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            long bytes = 0;
+            for (Path file : files) {
+                if (Generators.getInstance().getGeneratorIds(file.toString()).contains(generator)) {
+                    byte[] content = Files.readAllBytes(file);
+                    bytes += content.length;
+                    contents.add(new String(content, StandardCharsets.UTF_8));
+                }
+            }
+            if (contents.isEmpty())
+                throw new IllegalStateException("No file of " + corpusPath + " is accepted by " + generator);
+            megabytes = bytes / (1024D * 1024D);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long files;
+
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            files = 0;
+            megabytes = 0;
+        }
+    }
+
+    @Benchmark
+    public void testGenerator(Corpus c, Throughput t, Blackhole bh) throws IOException {
+        for (String content : c.contents)
+            bh.consume(c.treeGenerator.generateFrom().string(content));
+        t.files += c.contents.size();
+        t.megabytes += c.megabytes;
+    }
+}
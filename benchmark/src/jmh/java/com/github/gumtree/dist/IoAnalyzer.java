@@ -0,0 +1,97 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtree.dist;
+
+import com.github.gumtreediff.actions.ChawatheScriptGenerator;
+import com.github.gumtreediff.actions.EditScript;
+import com.github.gumtreediff.io.ActionsIoUtils;
+import com.github.gumtreediff.io.TreeIoUtils;
+import com.github.gumtreediff.matchers.CompositeMatchers;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.tree.TreeContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Writer;
+
+/**
+ * Benchmarks the serialization of trees and edit scripts, and the parsing of serialized trees.
+ * Serializers write to a writer discarding its input, so that only their own allocations are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class IoAnalyzer {
+    @State(Scope.Benchmark)
+    public static class IoData {
+        public String xml;
+
+        public MappingStore mappings;
+
+        public EditScript actions;
+
+        @Setup
+        public void setup(TreeData d) {
+            xml = TreeIoUtils.toXml(d.srcContext).toString();
+            mappings = new CompositeMatchers.ClassicGumtree().match(d.src, d.dst);
+            actions = new ChawatheScriptGenerator().computeActions(mappings);
+        }
+    }
+
+    @Benchmark
+    public void testXmlSerialization(TreeData d) throws Exception {
+        TreeIoUtils.toXml(d.srcContext).writeTo(new NullWriter());
+    }
+
+    @Benchmark
+    public void testJsonSerialization(TreeData d) throws Exception {
+        TreeIoUtils.toJson(d.srcContext).writeTo(new NullWriter());
+    }
+
+    @Benchmark
+    public TreeContext testXmlParsing(IoData io) throws Exception {
+        return TreeIoUtils.fromXml().generateFrom().string(io.xml);
+    }
+
+    @Benchmark
+    public void testActionsJsonSerialization(TreeData d, IoData io) throws Exception {
+        ActionsIoUtils.toJson(d.srcContext, io.actions, io.mappings).writeTo(new NullWriter());
+    }
+
+    @Benchmark
+    public void testActionsXmlSerialization(TreeData d, IoData io) throws Exception {
+        ActionsIoUtils.toXml(d.srcContext, io.actions, io.mappings).writeTo(new NullWriter());
+    }
+
+    static class NullWriter extends Writer {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
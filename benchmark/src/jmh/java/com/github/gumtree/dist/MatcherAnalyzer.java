@@ -19,39 +19,55 @@
 
 package com.github.gumtree.dist;
 
-import com.github.gumtreediff.io.TreeIoUtils;
 import com.github.gumtreediff.matchers.CompositeMatchers;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
-import com.github.gumtreediff.tree.ITree;
-
+import com.github.gumtreediff.matchers.heuristic.LcsMatcher;
 import org.openjdk.jmh.annotations.*;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks each composite matcher on the whole trees.
+ */
+@BenchmarkMode(Mode.AverageTime)
 public class MatcherAnalyzer {
-    @State(Scope.Benchmark)
-    public static class TreeData {
-        @Setup
-        public void load() {
-            try {
-                String otherPath = refPath.replace("_v0_", "_v1_");
-                src = TreeIoUtils.fromXml().generateFrom().file(refPath).getRoot();
-                dst = TreeIoUtils.fromXml().generateFrom().file(otherPath).getRoot();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+    static final Map<String, Supplier<Matcher>> MATCHERS = new HashMap<>();
 
-        @Param({})
-        public String refPath;
+    static {
+        MATCHERS.put("gumtree", CompositeMatchers.ClassicGumtree::new);
+        MATCHERS.put("gumtree-simple", CompositeMatchers.SimpleGumtree::new);
+        MATCHERS.put("gumtree-complete", CompositeMatchers.CompleteGumtreeMatcher::new);
+        MATCHERS.put("gumtree-partition", CompositeMatchers.PartitionGumtree::new);
+        MATCHERS.put("change-distiller", CompositeMatchers.ChangeDistiller::new);
+        MATCHERS.put("xy", CompositeMatchers.XyMatcher::new);
+        MATCHERS.put("rtedacdef", CompositeMatchers.Rtedacdef::new);
+        MATCHERS.put("cdabcdefseq", CompositeMatchers.CdabcdefSeq::new);
+        MATCHERS.put("cdabcdefpar", CompositeMatchers.CdabcdefPar::new);
+        MATCHERS.put("gtbcdef", CompositeMatchers.Gtbcdef::new);
+        MATCHERS.put("longestCommonSequence", LcsMatcher::new);
+    }
+
+    @State(Scope.Benchmark)
+    public static class MatcherData {
+        @Param({"gumtree", "gumtree-simple", "gumtree-complete", "gumtree-partition", "change-distiller", "xy",
+                "rtedacdef", "cdabcdefseq", "cdabcdefpar", "gtbcdef", "longestCommonSequence"})
+        public String matcher;
 
-        public ITree src;
+        public Supplier<Matcher> factory;
 
-        public ITree dst;
+        @Setup
+        public void setup() {
+            factory = MATCHERS.get(matcher);
+            if (factory == null)
+                throw new IllegalArgumentException("Unknown matcher " + matcher);
+        }
     }
 
     @Benchmark
-    public void testClassicGumtree(TreeData d) {
-        new CompositeMatchers.ClassicGumtree().match(d.src, d.dst);
+    public MappingStore testMatcher(TreeData d, MatcherData m) {
+        return m.factory.get().match(d.src, d.dst);
     }
-
 }
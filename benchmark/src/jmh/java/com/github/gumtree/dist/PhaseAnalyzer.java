@@ -0,0 +1,94 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtree.dist;
+
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.heuristic.cd.ChangeDistillerBottomUpMatcher;
+import com.github.gumtreediff.matchers.heuristic.cd.ChangeDistillerLeavesMatcher;
+import com.github.gumtreediff.matchers.heuristic.cd.ChangeDistillerParallelLeavesMatcher;
+import com.github.gumtreediff.matchers.heuristic.gt.*;
+import com.github.gumtreediff.matchers.optimizations.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks each matching phase alone. The mappings a phase starts from are computed once,
+ * during the setup, by running the phases preceding it in its composite matcher. The copy of these
+ * mappings given to each invocation is part of the measure, it is linear in the number of mappings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class PhaseAnalyzer {
+    public enum Phase {
+        GREEDY_SUBTREE(GreedySubtreeMatcher::new),
+        CLIQUE_SUBTREE(CliqueSubtreeMatcher::new),
+        GREEDY_BOTTOM_UP(GreedyBottomUpMatcher::new, GreedySubtreeMatcher::new),
+        SIMPLE_BOTTOM_UP(SimpleBottomUpMatcher::new, GreedySubtreeMatcher::new),
+        COMPLETE_BOTTOM_UP(CompleteBottomUpMatcher::new, CliqueSubtreeMatcher::new),
+        CD_LEAVES(ChangeDistillerLeavesMatcher::new),
+        CD_PARALLEL_LEAVES(ChangeDistillerParallelLeavesMatcher::new),
+        CD_BOTTOM_UP(ChangeDistillerBottomUpMatcher::new, ChangeDistillerLeavesMatcher::new),
+        THETA_A(IdenticalSubtreeMatcherThetaA::new),
+        THETA_B(LcsOptMatcherThetaB::new, GreedySubtreeMatcher::new, GreedyBottomUpMatcher::new),
+        THETA_C(UnmappedLeavesMatcherThetaC::new, GreedySubtreeMatcher::new, GreedyBottomUpMatcher::new,
+                LcsOptMatcherThetaB::new),
+        THETA_D(InnerNodesMatcherThetaD::new, GreedySubtreeMatcher::new, GreedyBottomUpMatcher::new,
+                LcsOptMatcherThetaB::new, UnmappedLeavesMatcherThetaC::new),
+        THETA_E(LeafMoveMatcherThetaE::new, GreedySubtreeMatcher::new, GreedyBottomUpMatcher::new,
+                LcsOptMatcherThetaB::new, UnmappedLeavesMatcherThetaC::new, InnerNodesMatcherThetaD::new),
+        THETA_F(CrossMoveMatcherThetaF::new, GreedySubtreeMatcher::new, GreedyBottomUpMatcher::new,
+                LcsOptMatcherThetaB::new, UnmappedLeavesMatcherThetaC::new, InnerNodesMatcherThetaD::new,
+                LeafMoveMatcherThetaE::new);
+
+        final Supplier<Matcher> phase;
+
+        final Supplier<Matcher>[] before;
+
+        @SafeVarargs
+        Phase(Supplier<Matcher> phase, Supplier<Matcher>... before) {
+            this.phase = phase;
+            this.before = before;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PhaseData {
+        @Param
+        public Phase phase;
+
+        public Matcher matcher;
+
+        public MappingStore mappings;
+
+        @Setup
+        public void setup(TreeData d) {
+            mappings = new MappingStore(d.src, d.dst);
+            for (Supplier<Matcher> before : phase.before)
+                mappings = before.get().match(d.src, d.dst, mappings);
+            matcher = phase.phase.get();
+        }
+    }
+
+    @Benchmark
+    public MappingStore testPhase(TreeData d, PhaseData p) {
+        return p.matcher.match(d.src, d.dst, new MappingStore(p.mappings));
+    }
+}
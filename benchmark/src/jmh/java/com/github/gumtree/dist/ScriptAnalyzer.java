@@ -0,0 +1,61 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtree.dist;
+
+import com.github.gumtreediff.actions.*;
+import com.github.gumtreediff.matchers.CompositeMatchers;
+import com.github.gumtreediff.matchers.MappingStore;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks the edit script generation from the mappings of the classic GumTree matcher.
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class ScriptAnalyzer {
+    @State(Scope.Benchmark)
+    public static class MappingData {
+        public MappingStore mappings;
+
+        @Setup
+        public void setup(TreeData d) {
+            mappings = new CompositeMatchers.ClassicGumtree().match(d.src, d.dst);
+        }
+    }
+
+    @Benchmark
+    public EditScript testChawathe(MappingData m) {
+        return new ChawatheScriptGenerator().computeActions(m.mappings);
+    }
+
+    @Benchmark
+    public EditScript testSimplifiedChawathe(MappingData m) {
+        return new SimplifiedChawatheScriptGenerator().computeActions(m.mappings);
+    }
+
+    @Benchmark
+    public EditScript testInsertDeleteChawathe(MappingData m) {
+        return new InsertDeleteChawatheScriptGenerator().computeActions(m.mappings);
+    }
+
+    @Benchmark
+    public EditScriptStatistics testStatistics(MappingData m) {
+        return new EditScriptStatistics(m.mappings);
+    }
+}
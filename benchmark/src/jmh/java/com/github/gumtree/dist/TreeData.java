@@ -0,0 +1,70 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtree.dist;
+
+import com.github.gumtreediff.io.TreeIoUtils;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.utils.Pair;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Pair of trees loaded once per benchmark from a reference file and its other version,
+ * obtained by replacing _v0 with _v1 in the path. A reference of the form synthetic:size[:seed]
+ * stands for a pair built by {@link SyntheticTreeGenerator}.
+ */
+@State(Scope.Benchmark)
+public class TreeData {
+    public static final String SYNTHETIC_PREFIX = "synthetic:";
+
+    @Param({})
+    public String refPath;
+
+    public TreeContext srcContext;
+
+    public TreeContext dstContext;
+
+    public ITree src;
+
+    public ITree dst;
+
+    @Setup
+    public void load() throws Exception {
+        if (refPath.startsWith(SYNTHETIC_PREFIX)) {
+            String[] args = refPath.substring(SYNTHETIC_PREFIX.length()).split(":");
+            SyntheticTreeGenerator generator = new SyntheticTreeGenerator().size(Integer.parseInt(args[0]));
+            if (args.length > 1)
+                generator.seed(Long.parseLong(args[1]));
+            Pair<TreeContext, TreeContext> trees = generator.generate();
+            srcContext = trees.first;
+            dstContext = trees.second;
+        }
+        else {
+            String otherPath = refPath.replace("_v0", "_v1");
+            srcContext = TreeIoUtils.fromXml().generateFrom().file(refPath);
+            dstContext = TreeIoUtils.fromXml().generateFrom().file(otherPath);
+        }
+        src = srcContext.getRoot();
+        dst = dstContext.getRoot();
+        // Metrics are computed lazily, they are computed here so that no benchmark pays for them.
+        src.getMetrics();
+        dst.getMetrics();
+    }
+}
@@ -0,0 +1,37 @@
+using System;
+using System.Collections.Generic;
+
+namespace Corpus
+{
+    public class Stack
+    {
+        private readonly List<int> elements = new List<int>();
+
+        public void Push(int value)
+        {
+            elements.Add(value);
+        }
+
+        public int Pop()
+        {
+            if (elements.Count == 0)
+                throw new InvalidOperationException("Empty stack");
+            int value = elements[elements.Count - 1];
+            elements.RemoveAt(elements.Count - 1);
+            return value;
+        }
+
+        public bool IsEmpty => elements.Count == 0;
+
+        public static void Main(string[] args)
+        {
+            var stack = new Stack();
+            for (int i = 0; i < 10; i++)
+                stack.Push(i * i);
+            int sum = 0;
+            while (!stack.IsEmpty)
+                sum += stack.Pop();
+            Console.WriteLine("Sum: " + sum);
+        }
+    }
+}
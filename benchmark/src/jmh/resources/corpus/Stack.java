@@ -0,0 +1,39 @@
+package corpus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A stack of integers backed by a list.
+ */
+public class Stack {
+    private final List<Integer> elements = new ArrayList<>();
+
+    public void push(int value) {
+        elements.add(value);
+    }
+
+    public int pop() {
+        if (elements.isEmpty())
+            throw new IllegalStateException("Empty stack");
+        return elements.remove(elements.size() - 1);
+    }
+
+    public int peek() {
+        return elements.get(elements.size() - 1);
+    }
+
+    public boolean isEmpty() {
+        return elements.isEmpty();
+    }
+
+    public static void main(String[] args) {
+        Stack stack = new Stack();
+        for (int i = 0; i < 10; i++)
+            stack.push(i * i);
+        int sum = 0;
+        while (!stack.isEmpty())
+            sum += stack.pop();
+        System.out.println("Sum: " + sum);
+    }
+}
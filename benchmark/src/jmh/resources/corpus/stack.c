@@ -0,0 +1,32 @@
+#include <stdio.h>
+#include <stdlib.h>
+
+struct stack {
+    int *elements;
+    int size;
+    int capacity;
+};
+
+void push(struct stack *s, int value) {
+    if (s->size == s->capacity) {
+        s->capacity = s->capacity * 2 + 1;
+        s->elements = realloc(s->elements, s->capacity * sizeof(int));
+    }
+    s->elements[s->size++] = value;
+}
+
+int pop(struct stack *s) {
+    return s->elements[--s->size];
+}
+
+int main(void) {
+    struct stack s = {NULL, 0, 0};
+    int i, sum = 0;
+    for (i = 0; i < 10; i++)
+        push(&s, i * i);
+    while (s.size > 0)
+        sum += pop(&s);
+    printf("Sum: %d\n", sum);
+    free(s.elements);
+    return 0;
+}
@@ -0,0 +1,32 @@
+#include <iostream>
+#include <stdexcept>
+#include <vector>
+
+class Stack {
+public:
+    void push(int value) { elements.push_back(value); }
+
+    int pop() {
+        if (elements.empty())
+            throw std::runtime_error("Empty stack");
+        int value = elements.back();
+        elements.pop_back();
+        return value;
+    }
+
+    bool empty() const { return elements.empty(); }
+
+private:
+    std::vector<int> elements;
+};
+
+int main() {
+    Stack stack;
+    for (int i = 0; i < 10; i++)
+        stack.push(i * i);
+    int sum = 0;
+    while (!stack.empty())
+        sum += stack.pop();
+    std::cout << "Sum: " << sum << std::endl;
+    return 0;
+}
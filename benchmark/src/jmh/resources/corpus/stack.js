@@ -0,0 +1,25 @@
+function Stack() {
+    this.elements = [];
+}
+
+Stack.prototype.push = function (value) {
+    this.elements.push(value);
+};
+
+Stack.prototype.pop = function () {
+    if (this.elements.length === 0)
+        throw new Error("Empty stack");
+    return this.elements.pop();
+};
+
+Stack.prototype.isEmpty = function () {
+    return this.elements.length === 0;
+};
+
+var stack = new Stack();
+for (var i = 0; i < 10; i++)
+    stack.push(i * i);
+var sum = 0;
+while (!stack.isEmpty())
+    sum += stack.pop();
+print("Sum: " + sum);
@@ -0,0 +1,34 @@
+<?php
+
+class Stack
+{
+    private $elements = array();
+
+    public function push($value)
+    {
+        $this->elements[] = $value;
+    }
+
+    public function pop()
+    {
+        if (empty($this->elements)) {
+            throw new Exception("Empty stack");
+        }
+        return array_pop($this->elements);
+    }
+
+    public function isEmpty()
+    {
+        return empty($this->elements);
+    }
+}
+
+$stack = new Stack();
+for ($i = 0; $i < 10; $i++) {
+    $stack->push($i * $i);
+}
+$sum = 0;
+while (!$stack->isEmpty()) {
+    $sum += $stack->pop();
+}
+echo "Sum: " . $sum . "\n";
@@ -0,0 +1,24 @@
+class Stack:
+    def __init__(self):
+        self.elements = []
+
+    def push(self, value):
+        self.elements.append(value)
+
+    def pop(self):
+        if not self.elements:
+            raise ValueError("Empty stack")
+        return self.elements.pop()
+
+    def is_empty(self):
+        return not self.elements
+
+
+if __name__ == "__main__":
+    stack = Stack()
+    for i in range(10):
+        stack.push(i * i)
+    total = 0
+    while not stack.is_empty():
+        total += stack.pop()
+    print("Sum: %d" % total)
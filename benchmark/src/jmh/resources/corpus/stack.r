@@ -0,0 +1,28 @@
+new_stack <- function() {
+  list(elements = c())
+}
+
+push <- function(stack, value) {
+  stack$elements <- c(stack$elements, value)
+  stack
+}
+
+pop <- function(stack) {
+  if (length(stack$elements) == 0) {
+    stop("Empty stack")
+  }
+  n <- length(stack$elements)
+  list(stack = list(elements = stack$elements[-n]), value = stack$elements[n])
+}
+
+stack <- new_stack()
+for (i in 0:9) {
+  stack <- push(stack, i * i)
+}
+total <- 0
+while (length(stack$elements) > 0) {
+  result <- pop(stack)
+  stack <- result$stack
+  total <- total + result$value
+}
+print(paste("Sum:", total))
@@ -0,0 +1,24 @@
+class Stack
+  def initialize
+    @elements = []
+  end
+
+  def push(value)
+    @elements.push(value)
+  end
+
+  def pop
+    raise "Empty stack" if @elements.empty?
+    @elements.pop
+  end
+
+  def empty?
+    @elements.empty?
+  end
+end
+
+stack = Stack.new
+10.times { |i| stack.push(i * i) }
+sum = 0
+sum += stack.pop until stack.empty?
+puts "Sum: #{sum}"
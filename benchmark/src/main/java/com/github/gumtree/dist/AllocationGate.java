@@ -0,0 +1,179 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtree.dist;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Compares the bytes allocated per operation, as measured by the GC profiler of JMH, to a stored
+ * baseline. Usage:
+ * <ul>
+ *     <li>AllocationGate check results.csv baseline.csv threshold: fails when the allocation of a benchmark
+ *     grows by more than the given ratio (e.g. 0.1 for 10%) compared to its baseline. The check is skipped,
+ *     without failing, until a baseline is recorded,</li>
+ *     <li>AllocationGate update results.csv baseline.csv: replaces the baseline by the results.</li>
+ * </ul>
+ * The results are the CSV results of JMH, the baseline is a CSV file with one benchmark per line,
+ * identified by its name and parameters, followed by its allocated bytes per operation.
+ */
+public class AllocationGate {
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private static final String GC_COUNT_METRIC = "gc.count";
+
+    // Allocations smaller than this are ignored, they are mostly due to measurement noise.
+    private static final double MIN_DIFFERENCE = 64;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || !(args[0].equals("check") || args[0].equals("update"))) {
+            System.err.println("Usage: AllocationGate check|update results.csv baseline.csv [threshold]");
+            System.exit(-1);
+        }
+
+        Map<String, Double> results = readResults(Paths.get(args[1]), ALLOCATION_METRIC);
+        Path baselinePath = Paths.get(args[2]);
+        if (args[0].equals("update")) {
+            writeBaseline(baselinePath, results);
+            System.out.printf("Baseline of %d benchmarks written to %s\n", results.size(), baselinePath);
+            return;
+        }
+
+        Map<String, Double> baseline = Files.exists(baselinePath) ? readBaseline(baselinePath) : new HashMap<>();
+        if (baseline.isEmpty()) {
+            System.out.printf("No allocation baseline in %s, check skipped. Record one with updateAllocationBaseline\n",
+                    baselinePath);
+            return;
+        }
+
+        System.out.printf("%-100s %15s %15s %8s %6s\n", "benchmark", "baseline B/op", "current B/op", "ratio", "gc");
+        Map<String, Double> gcCounts = readResults(Paths.get(args[1]), GC_COUNT_METRIC);
+        double threshold = args.length > 3 ? Double.parseDouble(args[3]) : 0.1;
+        int regressions = 0;
+        for (Map.Entry<String, Double> e : results.entrySet()) {
+            Double reference = baseline.get(e.getKey());
+            double current = e.getValue();
+            String status = "";
+            if (reference == null)
+                status = "no baseline";
+            else if (current - reference > MIN_DIFFERENCE && current > reference * (1 + threshold)) {
+                status = "REGRESSION";
+                regressions++;
+            }
+            System.out.printf("%-100s %15s %15.0f %8s %6.0f %s\n", e.getKey(),
+                    reference == null ? "-" : String.format("%.0f", reference), current,
+                    reference == null || reference == 0 ? "-" : String.format("%.2f", current / reference),
+                    gcCounts.getOrDefault(e.getKey(), 0D), status);
+        }
+
+        if (regressions > 0) {
+            System.err.printf("%d benchmarks allocate more than %.0f%% over their baseline\n",
+                    regressions, threshold * 100);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Returns the score of the given secondary metric for each benchmark of the given JMH CSV results.
+     */
+    static Map<String, Double> readResults(Path results, String metric) throws IOException {
+        List<String> lines = Files.readAllLines(results, StandardCharsets.UTF_8);
+        Map<String, Double> scores = new TreeMap<>();
+        if (lines.isEmpty())
+            return scores;
+
+        List<String> header = parseCsvLine(lines.get(0));
+        int nameColumn = header.indexOf("Benchmark");
+        int scoreColumn = header.indexOf("Score");
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> fields = parseCsvLine(line);
+            if (fields.size() != header.size())
+                continue;
+            String name = fields.get(nameColumn);
+            // Secondary metrics are named benchmark:metric, with a middle dot before the metric in older JMH.
+            if (!name.endsWith(metric))
+                continue;
+            StringBuilder key = new StringBuilder(name.substring(0, name.lastIndexOf(':')));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ")) {
+                    // Paths are reduced to file names, so that baselines do not depend on the checkout location.
+                    String value = fields.get(i).replace('\\', '/');
+                    key.append(' ').append(header.get(i).substring(7)).append('=')
+                            .append(value.substring(value.lastIndexOf('/') + 1));
+                }
+            }
+            scores.put(key.toString(), Double.parseDouble(fields.get(scoreColumn)));
+        }
+        return scores;
+    }
+
+    static Map<String, Double> readBaseline(Path baseline) throws IOException {
+        Map<String, Double> scores = new HashMap<>();
+        for (String line : Files.readAllLines(baseline, StandardCharsets.UTF_8)) {
+            List<String> fields = parseCsvLine(line);
+            if (fields.size() == 2)
+                scores.put(fields.get(0), Double.parseDouble(fields.get(1)));
+        }
+        return scores;
+    }
+
+    static void writeBaseline(Path baseline, Map<String, Double> scores) throws IOException {
+        if (baseline.getParent() != null)
+            Files.createDirectories(baseline.getParent());
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(baseline, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Double> e : scores.entrySet())
+                w.printf(Locale.ROOT, "\"%s\",%.1f\n", e.getKey().replace("\"", "\"\""), e.getValue());
+        }
+    }
+
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                }
+                else if (c == '"')
+                    quoted = false;
+                else
+                    field.append(c);
+            }
+            else if (c == '"')
+                quoted = true;
+            else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else
+                field.append(c);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtree.dist;
+
+import com.github.gumtreediff.client.Run;
+import com.github.gumtreediff.gen.Generators;
+import com.github.gumtreediff.tree.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reports the heap retained by the trees of the files of a corpus, for each generator accepting
+ * a file and for each tree implementation. The native tree of the generator is measured, then its
+ * conversions to {@link Tree}, {@link ImmutableTree} and {@link VersionedTree}. Metrics are computed
+ * on every tree before it is measured (an {@link ImmutableTree} shares the metrics of its source).
+ * The retained heap is the growth of the used heap after a full collection when several copies of
+ * a tree are kept alive, divided by the number of copies. The output is a CSV file with one line
+ * per file, generator and implementation.
+ * Usage: MemoryFootprint corpusDir [output.csv]
+ */
+public class MemoryFootprint {
+    // Several copies of a tree are measured together, so that the measure is well above the noise of the heap.
+    private static final long MIN_MEASURED_BYTES = 8 * 1024 * 1024;
+
+    private static final int MAX_COPIES = 200;
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: MemoryFootprint corpusDir [output.csv]");
+            System.exit(-1);
+        }
+        Run.initGenerators();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get(args[0]))) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        PrintStream out = args.length > 1 ? new PrintStream(args[1], "UTF-8") : System.out;
+        out.println("file,generator,implementation,sourceBytes,nodes,retainedBytes,bytesPerNode,bytesPerSourceByte");
+        for (Path file : files) {
+            long sourceBytes = Files.size(file);
+            for (String generator : Generators.getInstance().getGeneratorIds(file.toString())) {
+                ITree tree;
+                try {
+                    tree = parse(generator, file);
+                } catch (Throwable e) {
+                    System.err.printf("Skipping %s with %s: %s\n", file, generator, e);
+                    continue;
+                }
+                int nodes = tree.getMetrics().size();
+                report(out, file, generator, tree.getClass().getSimpleName(), sourceBytes, nodes,
+                        measure(t -> parse(generator, file), tree));
+                report(out, file, generator, "Tree", sourceBytes, nodes, measure(MemoryFootprint::copy, tree));
+                report(out, file, generator, "ImmutableTree", sourceBytes, nodes,
+                        measure(ImmutableTree::new, tree));
+                report(out, file, generator, "VersionedTree", sourceBytes, nodes,
+                        measure(t -> VersionedTree.deepCreate(t, new VersionInt(0)), tree));
+            }
+        }
+        out.flush();
+        if (out != System.out)
+            out.close();
+    }
+
+    private static ITree parse(String generator, Path file) {
+        try {
+            ITree tree = Generators.getInstance().getTree(generator, file.toString()).getRoot();
+            tree.getMetrics();
+            return tree;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ITree copy(ITree tree) {
+        ITree copy = new Tree(tree.getType(), tree.getLabel());
+        copy.setPos(tree.getPos());
+        copy.setLength(tree.getLength());
+        for (ITree child : tree.getChildren())
+            copy.addChild(copy(child));
+        return copy;
+    }
+
+    /**
+     * Returns the number of bytes retained by one tree built by the given function.
+     */
+    private static long measure(Function<ITree, ITree> builder, ITree source) {
+        long estimate = retainedBy(builder, source, 1);
+        int copies = (int) Math.max(1, Math.min(MAX_COPIES, MIN_MEASURED_BYTES / Math.max(1, estimate)));
+        return copies == 1 ? estimate : retainedBy(builder, source, copies);
+    }
+
+    private static long retainedBy(Function<ITree, ITree> builder, ITree source, int copies) {
+        ITree[] kept = new ITree[copies];
+        long before = usedHeap();
+        for (int i = 0; i < copies; i++) {
+            kept[i] = builder.apply(source);
+            kept[i].getMetrics();
+        }
+        long after = usedHeap();
+        // Keeps the copies reachable until the heap has been measured.
+        if (kept[copies - 1] == null)
+            throw new IllegalStateException();
+        return Math.max(0, (after - before) / copies);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void report(PrintStream out, Path file, String generator, String implementation,
+                               long sourceBytes, int nodes, long retained) {
+        out.printf(Locale.ROOT, "\"%s\",%s,%s,%d,%d,%d,%.1f,%.1f\n", file, generator, implementation,
+                sourceBytes, nodes, retained, (double) retained / nodes, (double) retained / Math.max(1, sourceBytes));
+    }
+}
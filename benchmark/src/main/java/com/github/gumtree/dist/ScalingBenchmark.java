@@ -0,0 +1,322 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtree.dist;
+
+import com.github.gumtreediff.actions.ChawatheScriptGenerator;
+import com.github.gumtreediff.client.Run;
+import com.github.gumtreediff.gen.Generators;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matchers;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.tree.TypeSet;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs independent diffs concurrently in one JVM, with 1 to 64 threads, and reports for each number
+ * of threads the throughput, the median and 99th percentile latencies, the speedup over one thread,
+ * and the time threads spent blocked on or waiting for monitors (-1 when the JVM does not monitor
+ * thread contention). Besides the whole parse, match and edit script pipeline, each stage is
+ * measured alone, as well as the shared structures they rely on:
+ * the label interning of {@link com.github.gumtreediff.tree.Tree}, the {@link TypeSet} and the
+ * {@link Generators} and {@link Matchers} registries. The stage that stops scaling first points to
+ * the contended state. Every operation returns a checksum (e.g. the number of actions) compared to
+ * the one computed by a single thread, and the mismatches are reported: they reveal data races on
+ * shared state, such as on the TypeSet or on static configuration fields.
+ * The diffs are the pairs of files named *_v0.* and *_v1.* of a corpus, parsed by the generator
+ * registered for their extension.
+ * Usage: ScalingBenchmark corpusDir [maxThreads [secondsPerRun [output.csv]]]
+ */
+public class ScalingBenchmark {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CONTENTION_MONITORING = THREADS.isThreadContentionMonitoringSupported();
+
+    private static List<String[]> pairs;
+
+    /**
+     * Per thread copy of the trees of a pair, so that the stages run on trees no other thread uses.
+     */
+    static class Input {
+        final String[] files;
+        final TreeContext src;
+        final TreeContext dst;
+        final MappingStore mappings;
+
+        Input(String[] files, TreeContext src, TreeContext dst) {
+            this.files = files;
+            this.src = src.deriveTree();
+            this.dst = dst.deriveTree();
+            this.src.getRoot().getMetrics();
+            this.dst.getRoot().getMetrics();
+            this.mappings = Matchers.getInstance().getMatcher().match(this.src.getRoot(), this.dst.getRoot());
+        }
+    }
+
+    enum Stage {
+        PIPELINE {
+            @Override
+            int run(Input in) {
+                ITree src = parse(in.files[0]).getRoot();
+                ITree dst = parse(in.files[1]).getRoot();
+                MappingStore mappings = Matchers.getInstance().getMatcher().match(src, dst);
+                return new ChawatheScriptGenerator().computeActions(mappings).size();
+            }
+        },
+        PARSE {
+            @Override
+            int run(Input in) {
+                return parse(in.files[0]).getRoot().getMetrics().size()
+                        + parse(in.files[1]).getRoot().getMetrics().size();
+            }
+        },
+        MATCH {
+            @Override
+            int run(Input in) {
+                return Matchers.getInstance().getMatcher().match(in.src.getRoot(), in.dst.getRoot()).size();
+            }
+        },
+        SCRIPT {
+            @Override
+            int run(Input in) {
+                return new ChawatheScriptGenerator().computeActions(in.mappings).size();
+            }
+        },
+        INTERN {
+            @Override
+            int run(Input in) {
+                int canonical = 0;
+                for (ITree t : in.src.getRoot().preOrder())
+                    if (new String(t.getLabel()).intern() == t.getLabel())
+                        canonical++;
+                return canonical;
+            }
+        },
+        TYPES {
+            @Override
+            int run(Input in) {
+                int canonical = 0;
+                for (ITree t : in.src.getRoot().preOrder())
+                    if (TypeSet.type(t.getType().name) == t.getType())
+                        canonical++;
+                return canonical;
+            }
+        },
+        REGISTRIES {
+            @Override
+            int run(Input in) {
+                int found = 0;
+                for (int i = 0; i < 100; i++) {
+                    found += Generators.getInstance().getGeneratorIds(in.files[i % 2]).size();
+                    if (Matchers.getInstance().getMatcher() != null)
+                        found++;
+                }
+                return found;
+            }
+        };
+
+        abstract int run(Input in);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ScalingBenchmark corpusDir [maxThreads [secondsPerRun [output.csv]]]");
+            System.exit(-1);
+        }
+        Run.initGenerators();
+        try (Stream<Path> paths = Files.walk(Paths.get(args[0]))) {
+            pairs = paths.map(Path::toString).filter(p -> p.contains("_v0.")).sorted()
+                    .map(p -> new String[] {p, p.replace("_v0.", "_v1.")})
+                    .filter(p -> Files.exists(Paths.get(p[1])))
+                    .collect(Collectors.toList());
+        }
+        if (pairs.isEmpty()) {
+            System.err.println("No *_v0.* / *_v1.* pair found in " + args[0]);
+            System.exit(-1);
+        }
+        if (CONTENTION_MONITORING)
+            THREADS.setThreadContentionMonitoringEnabled(true);
+        List<TreeContext[]> trees = new ArrayList<>();
+        for (String[] pair : pairs)
+            trees.add(new TreeContext[] {parse(pair[0]), parse(pair[1])});
+        Map<Stage, int[]> references = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            int[] checksums = new int[pairs.size()];
+            for (int i = 0; i < pairs.size(); i++)
+                checksums[i] = stage.run(new Input(pairs.get(i), trees.get(i)[0], trees.get(i)[1]));
+            references.put(stage, checksums);
+        }
+
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        long duration = TimeUnit.SECONDS.toNanos(args.length > 2 ? Long.parseLong(args[2]) : 5);
+        PrintStream out = args.length > 3 ? new PrintStream(args[3], "UTF-8") : System.out;
+        out.println("stage,threads,operations,throughput,p50Ms,p99Ms,speedup,efficiency,blockedMs,waitedMs,mismatches");
+        for (Stage stage : Stage.values()) {
+            // Warm-up run, so that the single thread run is not slowed down by the compilation.
+            run(stage, 1, duration, trees, references.get(stage));
+            double singleThroughput = 0;
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                RunResult r = run(stage, threads, duration, trees, references.get(stage));
+                if (threads == 1)
+                    singleThroughput = r.throughput();
+                double speedup = r.throughput() / singleThroughput;
+                out.printf(Locale.ROOT, "%s,%d,%d,%.1f,%.3f,%.3f,%.2f,%.2f,%d,%d,%d\n", stage, threads,
+                        r.latencies.length, r.throughput(), r.percentile(0.5), r.percentile(0.99), speedup,
+                        speedup / threads, r.blockedMs, r.waitedMs, r.mismatches);
+                out.flush();
+            }
+        }
+        if (out != System.out)
+            out.close();
+        System.exit(0);
+    }
+
+    private static TreeContext parse(String file) {
+        try {
+            return Generators.getInstance().getTree(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class RunResult {
+        long[] latencies;
+        long elapsed;
+        long blockedMs;
+        long waitedMs;
+        int mismatches;
+
+        double throughput() {
+            return latencies.length / (elapsed / 1e9);
+        }
+
+        double percentile(double p) {
+            if (latencies.length == 0)
+                return Double.NaN;
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    private static class Worker implements Callable<Worker> {
+        final int index;
+        final Stage stage;
+        final List<TreeContext[]> trees;
+        final int[] references;
+        final CyclicBarrier start;
+        final long duration;
+        long[] latencies = new long[1024];
+        int count;
+        int mismatches;
+        long blockedMs;
+        long waitedMs;
+
+        Worker(int index, Stage stage, List<TreeContext[]> trees, int[] references,
+               CyclicBarrier start, long duration) {
+            this.index = index;
+            this.stage = stage;
+            this.trees = trees;
+            this.references = references;
+            this.start = start;
+            this.duration = duration;
+        }
+
+        @Override
+        public Worker call() throws Exception {
+            Input[] inputs = new Input[pairs.size()];
+            for (int i = 0; i < inputs.length; i++)
+                inputs[i] = new Input(pairs.get(i), trees.get(i)[0], trees.get(i)[1]);
+            start.await();
+            // Both times are -1 when the JVM does not monitor thread contention, the run reports -1 then.
+            blockedMs = -getThreadInfo().getBlockedTime();
+            waitedMs = -getThreadInfo().getWaitedTime();
+            long deadline = System.nanoTime() + duration;
+            // Threads start on different pairs, so that they do not work on the same files at the same time.
+            int i = index % inputs.length;
+            for (long now = System.nanoTime(); now < deadline; i = (i + 1) % inputs.length) {
+                int checksum = stage.run(inputs[i]);
+                long end = System.nanoTime();
+                if (checksum != references[i])
+                    mismatches++;
+                if (count == latencies.length)
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = end - now;
+                now = end;
+            }
+            blockedMs += getThreadInfo().getBlockedTime();
+            waitedMs += getThreadInfo().getWaitedTime();
+            return this;
+        }
+
+        private static ThreadInfo getThreadInfo() {
+            return THREADS.getThreadInfo(Thread.currentThread().getId());
+        }
+    }
+
+    private static RunResult run(Stage stage, int threads, long duration, List<TreeContext[]> trees,
+                                 int[] references) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier start = new CyclicBarrier(threads + 1);
+            List<Future<Worker>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++)
+                futures.add(pool.submit(new Worker(i, stage, trees, references, start, duration)));
+            start.await();
+            long begin = System.nanoTime();
+            List<Worker> workers = new ArrayList<>();
+            for (Future<Worker> f : futures)
+                workers.add(f.get());
+            RunResult result = new RunResult();
+            result.elapsed = System.nanoTime() - begin;
+            int total = 0;
+            for (Worker w : workers)
+                total += w.count;
+            result.latencies = new long[total];
+            int offset = 0;
+            for (Worker w : workers) {
+                System.arraycopy(w.latencies, 0, result.latencies, offset, w.count);
+                offset += w.count;
+                result.mismatches += w.mismatches;
+                result.blockedMs += w.blockedMs;
+                result.waitedMs += w.waitedMs;
+            }
+            if (!CONTENTION_MONITORING) {
+                result.blockedMs = -1;
+                result.waitedMs = -1;
+            }
+            Arrays.sort(result.latencies);
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtree.dist;
+
+import com.github.gumtreediff.io.TreeIoUtils;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Tree;
+import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.tree.Type;
+import com.github.gumtreediff.utils.Pair;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.gumtreediff.tree.TypeSet.type;
+
+/**
+ * Deterministic generator of synthetic pairs of trees. The first version is a random tree of the
+ * given size, where no node is deeper than the maximal depth nor has more children than the maximal
+ * fan-out. Inner nodes are unlabeled and leaves are labeled, types and labels being picked in
+ * alphabets of the given sizes. The second version is a copy of the first one on which a ratio of
+ * its size is mutated, the kind of each mutation being picked according to the mutation weights.
+ * The same seed and parameters always produce the same pair.
+ */
+public class SyntheticTreeGenerator {
+    private int size = 1000;
+    private int maxDepth = 12;
+    private int maxFanOut = 8;
+    private int types = 20;
+    private int labels = 100;
+    private double mutationRatio = 0.05;
+    private int[] mutationWeights = {1, 1, 1, 1, 1};
+    private long seed = 0;
+
+    private static final int INSERT = 0;
+    private static final int DELETE = 1;
+    private static final int UPDATE = 2;
+    private static final int MOVE = 3;
+    private static final int DUPLICATE = 4;
+
+    private static final int MAX_DUPLICATED_SIZE = 100;
+
+    private Random random;
+    private Type[] typeAlphabet;
+
+    public SyntheticTreeGenerator size(int size) {
+        this.size = size;
+        return this;
+    }
+
+    public SyntheticTreeGenerator maxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public SyntheticTreeGenerator maxFanOut(int maxFanOut) {
+        this.maxFanOut = maxFanOut;
+        return this;
+    }
+
+    public SyntheticTreeGenerator types(int types) {
+        this.types = types;
+        return this;
+    }
+
+    public SyntheticTreeGenerator labels(int labels) {
+        this.labels = labels;
+        return this;
+    }
+
+    /**
+     * Sets the number of mutations, as a ratio of the size of the first version.
+     */
+    public SyntheticTreeGenerator mutationRatio(double mutationRatio) {
+        this.mutationRatio = mutationRatio;
+        return this;
+    }
+
+    /**
+     * Sets the relative weights of inserts, deletes, updates, moves and duplications of subtrees.
+     */
+    public SyntheticTreeGenerator mutations(int inserts, int deletes, int updates, int moves, int duplicates) {
+        this.mutationWeights = new int[] {inserts, deletes, updates, moves, duplicates};
+        return this;
+    }
+
+    public SyntheticTreeGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public Pair<TreeContext, TreeContext> generate() {
+        random = new Random(seed);
+        typeAlphabet = new Type[types];
+        for (int i = 0; i < types; i++)
+            typeAlphabet[i] = type("T" + i);
+
+        TreeContext v0 = new TreeContext.TreeContextImpl();
+        v0.setRoot(generateTree());
+        TreeContext v1 = v0.deriveTree();
+        mutate(v1.getRoot());
+        return new Pair<>(v0, v1);
+    }
+
+    private ITree generateTree() {
+        double capacity = 0;
+        for (int d = 0; d <= maxDepth; d++)
+            capacity += Math.pow(maxFanOut, d);
+        if (capacity < size)
+            throw new IllegalArgumentException(String.format(
+                    "%d nodes do not fit in a depth of %d and a fan-out of %d", size, maxDepth, maxFanOut));
+
+        List<ITree> open = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        ITree root = newNode();
+        open.add(root);
+        depths.add(0);
+        List<ITree> nodes = new ArrayList<>(size);
+        nodes.add(root);
+        while (nodes.size() < size) {
+            int i = random.nextInt(open.size());
+            ITree parent = open.get(i);
+            ITree child = newNode();
+            parent.addChild(child);
+            nodes.add(child);
+            int depth = depths.get(i);
+            if (parent.getChildren().size() == maxFanOut)
+                removeAt(open, depths, i);
+            if (depth + 1 < maxDepth) {
+                open.add(child);
+                depths.add(depth + 1);
+            }
+        }
+
+        for (ITree t : nodes)
+            if (t.isLeaf())
+                t.setLabel(randomLabel());
+        return root;
+    }
+
+    private static void removeAt(List<ITree> open, List<Integer> depths, int i) {
+        int last = open.size() - 1;
+        open.set(i, open.get(last));
+        depths.set(i, depths.get(last));
+        open.remove(last);
+        depths.remove(last);
+    }
+
+    private void mutate(ITree root) {
+        List<ITree> nodes = new ArrayList<>();
+        for (ITree t : root.preOrder())
+            nodes.add(t);
+
+        int totalWeight = 0;
+        for (int w : mutationWeights)
+            totalWeight += w;
+        if (totalWeight == 0)
+            return;
+
+        int mutations = (int) Math.round(size * mutationRatio);
+        for (int m = 0; m < mutations; m++) {
+            int pick = random.nextInt(totalWeight);
+            int kind = 0;
+            while (pick >= mutationWeights[kind])
+                pick -= mutationWeights[kind++];
+
+            int index = random.nextInt(nodes.size());
+            ITree node = nodes.get(index);
+            switch (kind) {
+                case INSERT:
+                    ITree inserted = newNode();
+                    inserted.setLabel(randomLabel());
+                    node.insertChild(inserted, random.nextInt(node.getChildren().size() + 1));
+                    nodes.add(inserted);
+                    break;
+                case DELETE:
+                    if (node.isLeaf() && !node.isRoot()) {
+                        detach(node);
+                        nodes.set(index, nodes.get(nodes.size() - 1));
+                        nodes.remove(nodes.size() - 1);
+                    }
+                    break;
+                case UPDATE:
+                    if (node.isLeaf())
+                        node.setLabel(randomLabel());
+                    break;
+                case MOVE:
+                    ITree target = nodes.get(random.nextInt(nodes.size()));
+                    if (!node.isRoot() && !isInSubtree(target, node)) {
+                        detach(node);
+                        target.insertChild(node, random.nextInt(target.getChildren().size() + 1));
+                    }
+                    break;
+                case DUPLICATE:
+                    if (!node.isRoot() && isSmall(node)) {
+                        ITree copy = node.deepCopy();
+                        ITree parent = node.getParent();
+                        parent.insertChild(copy, random.nextInt(parent.getChildren().size() + 1));
+                        for (ITree t : copy.preOrder())
+                            nodes.add(t);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    }
+
+    private static void detach(ITree node) {
+        ITree parent = node.getParent();
+        parent.getChildren().remove(parent.getChildPosition(node));
+        node.setParent(null);
+    }
+
+    private static boolean isSmall(ITree t) {
+        int count = 0;
+        for (ITree n : t.preOrder())
+            if (++count > MAX_DUPLICATED_SIZE)
+                return false;
+        return true;
+    }
+
+    private static boolean isInSubtree(ITree t, ITree root) {
+        for (ITree current = t; current != null; current = current.getParent())
+            if (current == root)
+                return true;
+        return false;
+    }
+
+    private ITree newNode() {
+        return new Tree(typeAlphabet[random.nextInt(types)]);
+    }
+
+    private String randomLabel() {
+        return "l" + random.nextInt(labels);
+    }
+
+    /**
+     * Writes a synthetic pair as name_v0.xml and name_v1.xml files.
+     * Usage: SyntheticTreeGenerator outputDir size [seed [mutationRatio]]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticTreeGenerator outputDir size [seed [mutationRatio]]");
+            System.exit(-1);
+        }
+        SyntheticTreeGenerator generator = new SyntheticTreeGenerator().size(Integer.parseInt(args[1]));
+        if (args.length > 2)
+            generator.seed(Long.parseLong(args[2]));
+        if (args.length > 3)
+            generator.mutationRatio(Double.parseDouble(args[3]));
+        Pair<TreeContext, TreeContext> pair = generator.generate();
+        String name = String.format("%s/synthetic_%s", args[0], args[1]);
+        TreeIoUtils.toXml(pair.first).writeTo(new File(name + "_v0.xml"));
+        TreeIoUtils.toXml(pair.second).writeTo(new File(name + "_v1.xml"));
+    }
+}
@@ -23,15 +23,19 @@ package com.github.gumtreediff.client.diff;
 import com.github.gumtreediff.client.Option;
 import com.github.gumtreediff.client.Client;
 import com.github.gumtreediff.gen.Generators;
+import com.github.gumtreediff.matchers.AutoMatcher;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.Matchers;
+import com.github.gumtreediff.matchers.PhaseStatistics;
 import com.github.gumtreediff.tree.TreeContext;
 
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 
 public abstract class AbstractDiffClient<O extends AbstractDiffClient.Options> extends Client {
 
@@ -45,6 +49,7 @@ public abstract class AbstractDiffClient<O extends AbstractDiffClient.Options> e
         public String generator = null;
         public String src;
         public String dst;
+        public PhaseStatistics phases = null;
 
         @Override
         public Option[] values() {
@@ -61,6 +66,12 @@ public abstract class AbstractDiffClient<O extends AbstractDiffClient.Options> e
                             generator = args[0];
                         }
                     },
+                    new Option("--phases", "Print the time, allocations and mappings of each matching phase.", 0) {
+                        @Override
+                        protected void process(String name, String[] args) {
+                            phases = new PhaseStatistics();
+                        }
+                    },
                     new Option.Help(this) {
                         @Override
                         public void process(String name, String[] args) {
@@ -113,6 +124,7 @@ public abstract class AbstractDiffClient<O extends AbstractDiffClient.Options> e
         matcher = (opts.matcher == null)
                 ? matchers.getMatcher()
                 : matchers.getMatcher(opts.matcher);
+        matcher.setListener(opts.phases);
         return matcher;
     }
 
@@ -122,7 +134,13 @@ public abstract class AbstractDiffClient<O extends AbstractDiffClient.Options> e
         matcher = (opts.matcher == null)
                 ? matchers.getMatcher()
                 : matchers.getMatcher(opts.matcher);
-        return matcher.match(getSrcTreeContext().getRoot(), getDstTreeContext().getRoot());
+        matcher.setListener(opts.phases);
+        MappingStore mappings = matcher.match(getSrcTreeContext().getRoot(), getDstTreeContext().getRoot());
+        if (Option.Verbose.verbose && matcher instanceof AutoMatcher)
+            System.err.println(((AutoMatcher) matcher).getDecision());
+        if (opts.phases != null)
+            System.err.print(opts.phases);
+        return mappings;
     }
 
     protected TreeContext getSrcTreeContext() {
@@ -132,11 +150,29 @@ public abstract class AbstractDiffClient<O extends AbstractDiffClient.Options> e
     }
 
     protected TreeContext getDstTreeContext() {
-        if (dst == null)
-            dst = getTreeContext(opts.dst);
+        if (dst == null) {
+            // Byte-identical files are parsed only once.
+            if (haveSameContent(opts.src, opts.dst))
+                dst = getSrcTreeContext().deriveTree();
+            else
+                dst = getTreeContext(opts.dst);
+        }
         return dst;
     }
 
+    private static boolean haveSameContent(String src, String dst) {
+        try {
+            Path srcPath = Paths.get(src);
+            Path dstPath = Paths.get(dst);
+            if (!(Files.isRegularFile(srcPath) && Files.isRegularFile(dstPath))
+                    || Files.size(srcPath) != Files.size(dstPath))
+                return false;
+            return Arrays.equals(Files.readAllBytes(srcPath), Files.readAllBytes(dstPath));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     protected TreeContext getTreeContext(String file) {
         try {
             TreeContext t;
@@ -27,9 +27,6 @@ import com.github.gumtreediff.actions.model.Action;
 import com.github.gumtreediff.client.Register;
 import com.github.gumtreediff.matchers.MappingStore;
 
-import java.util.List;
-import java.util.Set;
-
 @Register(name = "cluster", description = "Extract action clusters",
         options = AbstractDiffClient.Options.class)
 public class ClusterDiff extends AbstractDiffClient<AbstractDiffClient.Options> {
@@ -43,14 +40,14 @@ public class ClusterDiff extends AbstractDiffClient<AbstractDiffClient.Options>
         MappingStore ms = matchTrees();
         EditScript actions = new ChawatheScriptGenerator().computeActions(ms);
         ActionClusterFinder f = new ActionClusterFinder(getSrcTreeContext(), getDstTreeContext(), actions);
-        for (Set<Action> cluster: f.getClusters()) {
+        f.forEachCluster(cluster -> {
             System.out.println("New cluster:");
             System.out.println(f.getClusterLabel(cluster));
             System.out.println("------------");
             for (Action a: cluster)
                 System.out.println(a.toString());
             System.out.println();
-        }
+        });
     }
 
     @Override
@@ -0,0 +1,51 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.client.diff;
+
+import com.github.gumtreediff.actions.EditScriptStatistics;
+import com.github.gumtreediff.client.Register;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.tree.Type;
+
+@Register(name = "stats", description = "Dump the number of actions, globally and per node type",
+        options = AbstractDiffClient.Options.class)
+public class StatsDiff extends AbstractDiffClient<AbstractDiffClient.Options> {
+
+    public StatsDiff(String[] args) {
+        super(args);
+    }
+
+    @Override
+    protected Options newOptions() {
+        return new Options();
+    }
+
+    @Override
+    public void run() {
+        MappingStore ms = matchTrees();
+        EditScriptStatistics stats = new EditScriptStatistics(ms);
+        System.out.println("type\tinsert\tdelete\tupdate\tmove");
+        System.out.printf("%s\t%d\t%d\t%d\t%d\n", "*",
+                stats.getInserted(), stats.getDeleted(), stats.getUpdated(), stats.getMoved());
+        for (Type type : stats.getTypes())
+            System.out.printf("%s\t%d\t%d\t%d\t%d\n", type,
+                    stats.getInserted(type), stats.getDeleted(type), stats.getUpdated(type), stats.getMoved(type));
+    }
+}
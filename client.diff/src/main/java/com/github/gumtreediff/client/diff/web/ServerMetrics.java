@@ -0,0 +1,152 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.client.diff.web;
+
+import com.github.gumtreediff.utils.Pair;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Operational metrics of the web diff server, exported in the Prometheus text format:
+ * requests per route and status, requests in flight, diff latency histograms per matcher
+ * and generator, parse cache hits and misses, and heap usage.
+ */
+public class ServerMetrics {
+    private static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final Map<Pair<String, String>, LongAdder> requests = new ConcurrentHashMap<>();
+
+    private final Map<Pair<String, String>, Histogram> diffs = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Records a finished request. Only the first segment of the path is kept as route,
+     * so that the number of series does not grow with the number of compared files.
+     */
+    public void requestEnded(String path, int status) {
+        inFlight.decrementAndGet();
+        int end = path.indexOf('/', 1);
+        String route = end < 0 ? path : path.substring(0, end);
+        requests.computeIfAbsent(new Pair<>(route, Integer.toString(status)), k -> new LongAdder()).increment();
+    }
+
+    public void diffDone(String matcher, String generator, long nanos) {
+        diffs.computeIfAbsent(new Pair<>(matcher, generator), k -> new Histogram()).observe(nanos / 1e9);
+    }
+
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public String toPrometheus() {
+        StringBuilder b = new StringBuilder();
+        header(b, "gumtree_requests_total", "counter", "Number of handled HTTP requests.");
+        for (Map.Entry<Pair<String, String>, LongAdder> e : sorted(requests).entrySet())
+            b.append("gumtree_requests_total{route=\"").append(escape(e.getKey().first))
+                    .append("\",status=\"").append(e.getKey().second).append("\"} ")
+                    .append(e.getValue().sum()).append('\n');
+
+        header(b, "gumtree_requests_in_flight", "gauge", "Number of HTTP requests being handled.");
+        b.append("gumtree_requests_in_flight ").append(inFlight.get()).append('\n');
+
+        header(b, "gumtree_diff_duration_seconds", "histogram",
+                "Time to parse, match and render a diff, per matcher and generator.");
+        for (Map.Entry<Pair<String, String>, Histogram> e : sorted(diffs).entrySet()) {
+            String labels = "matcher=\"" + escape(e.getKey().first) + "\",generator=\""
+                    + escape(e.getKey().second) + "\"";
+            e.getValue().writeTo(b, "gumtree_diff_duration_seconds", labels);
+        }
+
+        header(b, "gumtree_parse_cache_hits_total", "counter", "Number of trees found in the parse cache.");
+        b.append("gumtree_parse_cache_hits_total ").append(cacheHits.sum()).append('\n');
+        header(b, "gumtree_parse_cache_misses_total", "counter", "Number of trees parsed.");
+        b.append("gumtree_parse_cache_misses_total ").append(cacheMisses.sum()).append('\n');
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        header(b, "jvm_memory_heap_used_bytes", "gauge", "Used heap memory.");
+        b.append("jvm_memory_heap_used_bytes ").append(heap.getUsed()).append('\n');
+        header(b, "jvm_memory_heap_committed_bytes", "gauge", "Committed heap memory.");
+        b.append("jvm_memory_heap_committed_bytes ").append(heap.getCommitted()).append('\n');
+        header(b, "jvm_memory_heap_max_bytes", "gauge", "Maximum heap memory, -1 if undefined.");
+        b.append("jvm_memory_heap_max_bytes ").append(heap.getMax()).append('\n');
+        return b.toString();
+    }
+
+    private static void header(StringBuilder b, String name, String type, String help) {
+        b.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        b.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static <V> Map<Pair<String, String>, V> sorted(Map<Pair<String, String>, V> series) {
+        Map<Pair<String, String>, V> sorted = new TreeMap<>((a, b) -> {
+            int c = a.first.compareTo(b.first);
+            return c != 0 ? c : a.second.compareTo(b.second);
+        });
+        sorted.putAll(series);
+        return sorted;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static class Histogram {
+        private final long[] counts = new long[BUCKETS.length];
+        private long count;
+        private double sum;
+
+        synchronized void observe(double value) {
+            for (int i = 0; i < BUCKETS.length; i++)
+                if (value <= BUCKETS[i])
+                    counts[i]++;
+            count++;
+            sum += value;
+        }
+
+        synchronized void writeTo(StringBuilder b, String name, String labels) {
+            for (int i = 0; i < BUCKETS.length; i++)
+                b.append(String.format(Locale.ROOT, "%s_bucket{%s,le=\"%s\"} %d\n",
+                        name, labels, BUCKETS[i], counts[i]));
+            b.append(String.format(Locale.ROOT, "%s_bucket{%s,le=\"+Inf\"} %d\n", name, labels, count));
+            b.append(String.format(Locale.ROOT, "%s_sum{%s} %s\n", name, labels, sum));
+            b.append(String.format(Locale.ROOT, "%s_count{%s} %d\n", name, labels, count));
+        }
+    }
+}
@@ -24,8 +24,11 @@ import com.github.gumtreediff.actions.ChawatheScriptGenerator;
 import com.github.gumtreediff.client.Option;
 import com.github.gumtreediff.client.Register;
 import com.github.gumtreediff.client.diff.AbstractDiffClient;
+import com.github.gumtreediff.gen.Generators;
 import com.github.gumtreediff.gen.Registry;
 import com.github.gumtreediff.io.DirectoryComparator;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.tree.TreeContext;
 import com.github.gumtreediff.utils.Pair;
 import org.rendersnake.HtmlCanvas;
 import org.rendersnake.Renderable;
@@ -36,11 +39,24 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static spark.Spark.*;
 
 @Register(description = "a web diff client", options = WebDiff.Options.class, priority = Registry.Priority.HIGH)
 public class WebDiff extends AbstractDiffClient<WebDiff.Options> {
+    private static final int PARSE_CACHE_SIZE = 32;
+
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    private final Map<String, CachedTree> parseCache = new LinkedHashMap<String, CachedTree>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedTree> eldest) {
+            return size() > PARSE_CACHE_SIZE;
+        }
+    };
 
     public WebDiff(String[] args) {
         super(args);
@@ -90,6 +106,8 @@ public class WebDiff extends AbstractDiffClient<WebDiff.Options> {
     public void configureSpark(final DirectoryComparator comparator, int port) {
         port(port);
         staticFiles.location("/web/");
+        before((request, response) -> metrics.requestStarted());
+        afterAfter((request, response) -> metrics.requestEnded(request.pathInfo(), response.status()));
         get("/", (request, response) -> {
             if (comparator.isDirMode())
                 response.redirect("/list");
@@ -104,12 +122,16 @@ public class WebDiff extends AbstractDiffClient<WebDiff.Options> {
         get("/diff/:id", (request, response) -> {
             int id = Integer.parseInt(request.params(":id"));
             Pair<File, File> pair = comparator.getModifiedFiles().get(id);
+            long start = System.nanoTime();
+            Matcher matcher = getMatcher();
             Renderable view = new DiffView(pair.first, pair.second,
-                    this.getTreeContext(pair.first.getAbsolutePath()),
-                    this.getTreeContext(pair.second.getAbsolutePath()),
-                    getMatcher(),
+                    getCachedTreeContext(pair.first),
+                    getCachedTreeContext(pair.second),
+                    matcher,
                     new ChawatheScriptGenerator());
-            return render(view);
+            String html = render(view);
+            metrics.diffDone(getMatcherId(matcher), getGeneratorId(pair.first), System.nanoTime() - start);
+            return html;
         });
         get("/mergely/:id", (request, response) -> {
             int id = Integer.parseInt(request.params(":id"));
@@ -132,12 +154,73 @@ public class WebDiff extends AbstractDiffClient<WebDiff.Options> {
             Renderable view = new ScriptView(pair.first, pair.second);
             return render(view);
         });
+        get("/phases", (request, response) -> {
+            response.type("text/csv");
+            if (opts.phases == null)
+                halt(404, "Phase statistics are only collected with the --phases option.");
+            return opts.phases.toCsv();
+        });
+        get("/metrics", (request, response) -> {
+            response.type("text/plain; version=0.0.4");
+            return metrics.toPrometheus();
+        });
         get("/quit", (request, response) -> {
             System.exit(0);
             return "";
         });
     }
 
+    /**
+     * Returns the tree of the given file, parsed again only if the file changed since it was cached.
+     * The cached trees are never given out: the matchers and the edit script generators modify their
+     * trees, and the requests run concurrently, so each request gets its own copy.
+     */
+    private TreeContext getCachedTreeContext(File file) {
+        String path = file.getAbsolutePath();
+        long modified = file.lastModified();
+        long length = file.length();
+        synchronized (parseCache) {
+            CachedTree cached = parseCache.get(path);
+            if (cached != null && cached.modified == modified && cached.length == length) {
+                metrics.cacheHit();
+                return cached.context.deriveTree();
+            }
+        }
+        metrics.cacheMiss();
+        TreeContext context = getTreeContext(path);
+        if (context == null)
+            return null;
+        synchronized (parseCache) {
+            parseCache.put(path, new CachedTree(context, modified, length));
+        }
+        return context.deriveTree();
+    }
+
+    private static String getMatcherId(Matcher matcher) {
+        com.github.gumtreediff.matchers.Register register =
+                matcher.getClass().getAnnotation(com.github.gumtreediff.matchers.Register.class);
+        return register == null ? matcher.getClass().getSimpleName() : register.id();
+    }
+
+    private String getGeneratorId(File file) {
+        if (opts.generator != null)
+            return opts.generator;
+        List<String> ids = Generators.getInstance().getGeneratorIds(file.getAbsolutePath());
+        return ids.isEmpty() ? "unknown" : ids.get(0);
+    }
+
+    private static class CachedTree {
+        final TreeContext context;
+        final long modified;
+        final long length;
+
+        CachedTree(TreeContext context, long modified, long length) {
+            this.context = context;
+            this.modified = modified;
+            this.length = length;
+        }
+    }
+
     private static String render(Renderable r) {
         HtmlCanvas c = new HtmlCanvas();
         try {
@@ -20,17 +20,18 @@
 package com.github.gumtreediff.actions;
 
 import com.github.gumtreediff.actions.model.*;
+import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.tree.TreeContext;
-import org.jgrapht.DirectedGraph;
-import org.jgrapht.UndirectedGraph;
-import org.jgrapht.alg.ConnectivityInspector;
-import org.jgrapht.graph.DefaultDirectedGraph;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.SimpleGraph;
 
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Consumer;
 
+/**
+ * Groups the actions of an edit script into clusters of related actions: embedded inserts,
+ * embedded deletes, moves of nodes sharing the same parent and updates to the same value.
+ * Related actions are merged in an array based union-find keyed by the action index, the
+ * related candidates being found through indexes on the nodes, parents and values of the actions.
+ */
 public class ActionClusterFinder {
 
     private TreeContext src;
@@ -39,7 +40,11 @@ public class ActionClusterFinder {
 
     private EditScript actions;
 
-    private DirectedGraph<Action, DefaultEdge> graph;
+    private final int[] parents;
+
+    private final boolean[] embedded;
+
+    private final Map<Action, Integer> indexes = new IdentityHashMap<>();
 
     private List<Set<Action>> clusters;
 
@@ -47,66 +52,100 @@ public class ActionClusterFinder {
         this.src = src;
         this.dst = dst;
         this.actions = actions;
-        graph = new DefaultDirectedGraph<>(DefaultEdge.class);
-
-        for (Action a: actions)
-            graph.addVertex(a);
-
+        int size = actions.size();
+        parents = new int[size];
+        embedded = new boolean[size];
+        for (int i = 0; i < size; i++)
+            parents[i] = i;
+
+        Map<ITree, Integer> insertedNodes = new IdentityHashMap<>();
+        Map<ITree, Integer> deletedNodes = new IdentityHashMap<>();
+        for (int i = 0; i < size; i++) {
+            Action a = actions.get(i);
+            indexes.put(a, i);
+            if (a instanceof Insert)
+                insertedNodes.putIfAbsent(a.getNode(), i);
+            else if (a instanceof Delete)
+                deletedNodes.putIfAbsent(a.getNode(), i);
+        }
 
-        for (Action a1: actions) {
-            for (Action a2: actions) {
-                if (a1 != a2) {
-                    if (embeddedInserts(a1, a2) || sameValueUpdates(a1, a2)
-                            || sameParentMoves(a1, a2) || embeddedDeletes(a1, a2))
-                        graph.addEdge(a1, a2);
-                }
+        Map<ITree, Integer> movedParents = new IdentityHashMap<>();
+        Map<String, Integer> updatedValues = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Action a = actions.get(i);
+            if (a instanceof Insert)
+                link(insertedNodes.get(((Insert) a).getParent()), i, true);
+            else if (a instanceof Delete)
+                link(deletedNodes.get(a.getNode().getParent()), i, true);
+            else if (a instanceof Move) {
+                if (a.getNode() != null && a.getNode().getParent() != null)
+                    link(movedParents.putIfAbsent(a.getNode().getParent(), i), i, false);
             }
+            else if (a instanceof Update)
+                link(updatedValues.putIfAbsent(((Update) a).getValue(), i), i, false);
         }
-
-        ConnectivityInspector<Action, DefaultEdge> alg = new ConnectivityInspector<>(graph);
-        clusters = alg.connectedSets();
     }
 
-    public List<Set<Action>> getClusters() {
-        return clusters;
+    private void link(Integer related, int i, boolean embedding) {
+        if (related == null || related == i)
+            return;
+        if (embedding)
+            embedded[i] = true;
+        union(related, i);
     }
 
-    private boolean embeddedInserts(Action a1, Action a2) {
-        if (!(a1 instanceof Insert && a2 instanceof Insert))
-            return false;
-        Insert i1 = (Insert) a1;
-        Insert i2 = (Insert) a2;
-        return i2.getParent().equals(i1.getNode());
+    private int find(int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
     }
 
-    private boolean embeddedDeletes(Action a1, Action a2) {
-        if (!(a1 instanceof Delete && a2 instanceof Delete))
-            return false;
-        Delete d1 = (Delete) a1;
-        Delete d2 = (Delete) a2;
-        if (d2.getNode().getParent() == null)
-            return false;
-        return d2.getNode().getParent().equals(d1.getNode());
+    private void union(int i, int j) {
+        int ri = find(i);
+        int rj = find(j);
+        if (ri < rj)
+            parents[rj] = ri;
+        else if (rj < ri)
+            parents[ri] = rj;
     }
 
-    private boolean sameParentMoves(Action a1, Action a2) {
-        if (!(a1 instanceof Move && a2 instanceof Move))
-            return false;
-        Move m1 = (Move) a1;
-        Move m2 = (Move) a2;
-        if (m1.getNode() == null)
-            return false;
-        if (m2.getNode() == null)
-            return false;
-        return m1.getNode().getParent().equals(m2.getNode().getParent());
+    /**
+     * Returns the clusters, ordered by the index of their last action in the edit script.
+     * The actions of a cluster are ordered as in the edit script.
+     */
+    public List<Set<Action>> getClusters() {
+        if (clusters == null) {
+            List<Set<Action>> result = new ArrayList<>();
+            forEachCluster(result::add);
+            clusters = result;
+        }
+        return clusters;
     }
 
-    private boolean sameValueUpdates(Action a1, Action a2) {
-        if (!(a1 instanceof Update && a2 instanceof Update))
-            return false;
-        Update u1 = (Update) a1;
-        Update u2 = (Update) a2;
-        return u1.getValue().equals(u2.getValue());
+    /**
+     * Streams the clusters to the given consumer, each cluster being emitted as soon as
+     * its last action has been reached, without retaining the previously emitted clusters.
+     *
+     * @see #getClusters()
+     */
+    public void forEachCluster(Consumer<Set<Action>> consumer) {
+        int size = actions.size();
+        int[] last = new int[size];
+        for (int i = 0; i < size; i++)
+            last[find(i)] = i;
+
+        Map<Integer, Set<Action>> pending = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int root = find(i);
+            Set<Action> cluster = pending.computeIfAbsent(root, (r) -> new LinkedHashSet<>());
+            cluster.add(actions.get(i));
+            if (last[root] == i) {
+                pending.remove(root);
+                consumer.accept(cluster);
+            }
+        }
     }
 
     public String getClusterLabel(Set<Action> cluster) {
@@ -116,7 +155,7 @@ public class ActionClusterFinder {
         if (first instanceof Insert) {
             Insert root = null;
             for (Action a : cluster)
-                if (graph.inDegreeOf(a) == 0)
+                if (!embedded[indexes.get(a)])
                     root = (Insert) a;
             return root.toString();
         } else if (first instanceof Move) {
@@ -128,11 +167,10 @@ public class ActionClusterFinder {
         } else if (first instanceof Delete) {
             Delete root = null;
             for (Action a : cluster)
-                if (graph.inDegreeOf(a) == 0)
+                if (!embedded[indexes.get(a)])
                     root = (Delete) a;
             return root.toString();
         } else
             return "Unknown cluster type";
     }
-
 }
@@ -25,6 +25,7 @@ import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.tree.FakeTree;
 import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.tree.TreeUtils;
+import com.github.gumtreediff.utils.JfrEvents;
 
 import java.util.*;
 
@@ -51,8 +52,19 @@ public class ChawatheScriptGenerator implements EditScriptGenerator {
 
     @Override
     public EditScript computeActions(MappingStore ms) {
+        JfrEvents.ActionComputation event = new JfrEvents.ActionComputation();
+        event.begin();
         initWith(ms);
         generate();
+        event.end();
+        if (event.shouldCommit()) {
+            event.generator = getClass().getSimpleName();
+            event.srcSize = ms.src.getMetrics().size();
+            event.dstSize = ms.dst.getMetrics().size();
+            event.mappings = ms.size();
+            event.actions = actions.size();
+            event.commit();
+        }
         return actions;
     }
 
@@ -161,7 +173,7 @@ public class ChawatheScriptGenerator implements EditScriptGenerator {
 
         for (ITree a : s1) {
             for (ITree b: s2 ) {
-                if (origMappings.has(a, b)) {
+                if (cpyMappings.has(a, b)) {
                     if (!lcs.contains(new Mapping(a, b))) {
                         int k = findPos(b);
                         Action mv = new Move(copyToOrig.get(a), copyToOrig.get(w), k);
@@ -0,0 +1,196 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.actions;
+
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Type;
+
+import java.util.*;
+
+/**
+ * Counts the actions of the edit script that {@link ChawatheScriptGenerator} would compute
+ * for a mapping store, without building any action, edit script or copy of the source tree.
+ * The counts are the ones of the node level actions (one insert per unmapped destination
+ * node, one delete per unmapped source node, one update per mapped node whose label changed
+ * and one move per mapped node that has to be moved), globally and per node type.
+ */
+public class EditScriptStatistics {
+    private static final int INSERT = 0;
+    private static final int DELETE = 1;
+    private static final int UPDATE = 2;
+    private static final int MOVE = 3;
+
+    private final MappingStore mappings;
+
+    private final int[] counts = new int[4];
+
+    private final Map<Type, int[]> countsByType = new HashMap<>();
+
+    public EditScriptStatistics(MappingStore mappings) {
+        this.mappings = mappings;
+        compute();
+    }
+
+    private void compute() {
+        for (ITree t : mappings.src.preOrder()) {
+            if (!mappings.isSrcMapped(t)) {
+                count(t, DELETE);
+                continue;
+            }
+            ITree dst = mappings.getDstForSrc(t);
+            if (dst != mappings.dst) {
+                if (!t.getLabel().equals(dst.getLabel()))
+                    count(t, UPDATE);
+                if (hasParentChanged(t, dst))
+                    count(t, MOVE);
+            }
+            countMisalignedChildren(t, dst);
+        }
+
+        for (ITree t : mappings.dst.preOrder())
+            if (!mappings.isDstMapped(t))
+                count(t, INSERT);
+    }
+
+    private boolean hasParentChanged(ITree src, ITree dst) {
+        ITree dstParent = dst.getParent();
+        if (!mappings.isDstMapped(dstParent))
+            return true;
+        ITree srcParent = (src == mappings.src) ? null : src.getParent();
+        return mappings.getSrcForDst(dstParent) != srcParent;
+    }
+
+    private void countMisalignedChildren(ITree src, ITree dst) {
+        List<ITree> s1 = new ArrayList<>();
+        for (ITree c : src.getChildren())
+            if (mappings.isSrcMapped(c) && mappings.getDstForSrc(c).getParent() == dst)
+                s1.add(c);
+
+        if (s1.isEmpty())
+            return;
+
+        List<ITree> s2 = new ArrayList<>();
+        for (ITree c : dst.getChildren())
+            if (mappings.isDstMapped(c) && mappings.getSrcForDst(c).getParent() == src)
+                s2.add(c);
+
+        // Same alignment than ChawatheScriptGenerator, so that the moved nodes (hence their types) are the same.
+        int m = s1.size();
+        int n = s2.size();
+        int[][] opt = new int[m + 1][n + 1];
+        for (int i = m - 1; i >= 0; i--) {
+            for (int j = n - 1; j >= 0; j--) {
+                if (mappings.getSrcForDst(s2.get(j)) == s1.get(i)) opt[i][j] = opt[i + 1][j + 1] + 1;
+                else opt[i][j] = Math.max(opt[i + 1][j], opt[i][j + 1]);
+            }
+        }
+
+        boolean[] aligned = new boolean[m];
+        int i = 0;
+        int j = 0;
+        while (i < m && j < n) {
+            if (mappings.getSrcForDst(s2.get(j)) == s1.get(i)) {
+                aligned[i] = true;
+                i++;
+                j++;
+            } else if (opt[i + 1][j] >= opt[i][j + 1]) i++;
+            else j++;
+        }
+
+        for (int k = 0; k < m; k++)
+            if (!aligned[k])
+                count(s1.get(k), MOVE);
+    }
+
+    private void count(ITree t, int kind) {
+        counts[kind]++;
+        countsByType.computeIfAbsent(t.getType(), (type) -> new int[4])[kind]++;
+    }
+
+    /**
+     * Returns the number of node insertions.
+     */
+    public int getInserted() {
+        return counts[INSERT];
+    }
+
+    /**
+     * Returns the number of node deletions.
+     */
+    public int getDeleted() {
+        return counts[DELETE];
+    }
+
+    /**
+     * Returns the number of node updates.
+     */
+    public int getUpdated() {
+        return counts[UPDATE];
+    }
+
+    /**
+     * Returns the number of node moves.
+     */
+    public int getMoved() {
+        return counts[MOVE];
+    }
+
+    /**
+     * Returns the total number of actions.
+     */
+    public int getTotal() {
+        return counts[INSERT] + counts[DELETE] + counts[UPDATE] + counts[MOVE];
+    }
+
+    public int getInserted(Type type) {
+        return get(type, INSERT);
+    }
+
+    public int getDeleted(Type type) {
+        return get(type, DELETE);
+    }
+
+    public int getUpdated(Type type) {
+        return get(type, UPDATE);
+    }
+
+    public int getMoved(Type type) {
+        return get(type, MOVE);
+    }
+
+    /**
+     * Returns the types of the nodes affected by at least one action.
+     */
+    public Set<Type> getTypes() {
+        return Collections.unmodifiableSet(countsByType.keySet());
+    }
+
+    private int get(Type type, int kind) {
+        int[] c = countsByType.get(type);
+        return c == null ? 0 : c[kind];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("insert: %d, delete: %d, update: %d, move: %d",
+                getInserted(), getDeleted(), getUpdated(), getMoved());
+    }
+}
@@ -23,7 +23,9 @@ package com.github.gumtreediff.gen;
 import com.github.gumtreediff.tree.TreeContext;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.regex.Pattern;
 
 public class Generators extends Registry<String, TreeGenerator, Register> {
@@ -44,10 +46,25 @@ public class Generators extends Registry<String, TreeGenerator, Register> {
     }
 
     public TreeContext getTree(String generator, String file) throws UnsupportedOperationException, IOException {
+        return getGenerator(generator).generateFrom().file(file);
+    }
+
+    public TreeGenerator getGenerator(String generator) throws UnsupportedOperationException {
+        Entry e = findById(generator);
+        if (e == null)
+            throw new UnsupportedOperationException("No generator \"" + generator + "\" found.");
+        return e.instantiate(null);
+    }
+
+    /**
+     * Returns the ids of all the generators accepting the given file, by decreasing priority.
+     */
+    public List<String> getGeneratorIds(String file) {
+        List<String> ids = new ArrayList<>();
         for (Entry e : entries)
-            if (e.id.equals(generator))
-                return e.instantiate(null).generateFrom().file(file);
-        throw new UnsupportedOperationException("No generator \"" + generator + "\" found.");
+            if (e.handle(file))
+                ids.add(e.id);
+        return ids;
     }
 
     @Override
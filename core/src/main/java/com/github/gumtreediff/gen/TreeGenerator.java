@@ -20,7 +20,9 @@
 
 package com.github.gumtreediff.gen;
 
+import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.utils.JfrEvents;
 import org.atteo.classindex.IndexSubclasses;
 
 import java.io.*;
@@ -42,10 +44,16 @@ public abstract class TreeGenerator {
         return new ReaderConfigurator();
     }
 
+    private String getId() {
+        Register register = getClass().getAnnotation(Register.class);
+        return register == null ? getClass().getSimpleName() : register.id();
+    }
+
     public class ReaderConfigurator {
 
         private String charsetName = "UTF-8";
         private Charset charset;
+        private String file;
 
         private Charset charset() {
             return (charset != null) ? charset : Charset.forName(charsetName);
@@ -62,6 +70,7 @@ public abstract class TreeGenerator {
         }
 
         public TreeContext file(Path path) throws IOException {
+            file = path.toString();
             return reader(Files.newBufferedReader(path, charset()));
         }
 
@@ -74,7 +83,19 @@ public abstract class TreeGenerator {
         }
 
         public TreeContext reader(Reader stream) throws IOException {
-            return generateTree(stream);
+            JfrEvents.Generation event = new JfrEvents.Generation();
+            event.begin();
+            TreeContext context = generateTree(stream);
+            event.end();
+            if (event.shouldCommit()) {
+                event.generator = getId();
+                event.file = file;
+                if (context.getRoot() != null)
+                    for (ITree t : context.getRoot().preOrder())
+                        event.size++;
+                event.commit();
+            }
+            return context;
         }
 
         public TreeContext stream(InputStream stream) throws IOException {
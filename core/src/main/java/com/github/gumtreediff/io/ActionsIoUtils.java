@@ -27,6 +27,7 @@ import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.utils.JfrEvents;
 import com.google.gson.stream.JsonWriter;
 
 import javax.xml.stream.XMLOutputFactory;
@@ -89,6 +90,8 @@ public final class ActionsIoUtils {
 
         @Override
         public void writeTo(Writer writer) throws Exception {
+            JfrEvents.Serialization event = new JfrEvents.Serialization();
+            event.begin();
             ActionFormatter fmt = newFormatter(context, writer);
             // Start the output
             fmt.startOutput();
@@ -130,6 +133,7 @@ public final class ActionsIoUtils {
 
             // Finish up
             fmt.endOutput();
+            commit(event, fmt, actions::size);
         }
     }
 
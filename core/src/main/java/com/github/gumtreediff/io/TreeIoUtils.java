@@ -26,6 +26,7 @@ import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.tree.*;
 import com.github.gumtreediff.tree.TreeContext.MetadataSerializers;
 import com.github.gumtreediff.tree.TreeContext.MetadataUnserializers;
+import com.github.gumtreediff.utils.JfrEvents;
 import com.google.gson.stream.JsonWriter;
 
 import javax.xml.namespace.QName;
@@ -45,6 +46,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
 import java.util.regex.Pattern;
 
 import static com.github.gumtreediff.tree.TypeSet.type;
@@ -167,6 +169,7 @@ public final class TreeIoUtils {
     }
 
     public abstract static class AbstractSerializer {
+        private String file;
 
         public abstract void writeTo(Writer writer) throws Exception;
 
@@ -190,13 +193,33 @@ public final class TreeIoUtils {
 
         public void writeTo(String file) throws Exception {
             try (Writer w = Files.newBufferedWriter(Paths.get(file), Charset.forName("UTF-8"))) {
+                this.file = file;
                 writeTo(w);
+            } finally {
+                this.file = null;
             }
         }
 
         public void writeTo(File file) throws Exception {
             try (Writer w = Files.newBufferedWriter(file.toPath(), Charset.forName("UTF-8"))) {
+                this.file = file.getPath();
                 writeTo(w);
+            } finally {
+                this.file = null;
+            }
+        }
+
+        /**
+         * Ends the given serialization event and commits it if it is recorded. The size is only
+         * computed in this case.
+         */
+        void commit(JfrEvents.Serialization event, Object formatter, IntSupplier size) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.format = formatter.getClass().getSimpleName();
+                event.file = file;
+                event.size = size.getAsInt();
+                event.commit();
             }
         }
     }
@@ -217,12 +240,21 @@ public final class TreeIoUtils {
                 throws Exception;
 
         public void writeTo(Writer writer) throws Exception {
+            JfrEvents.Serialization event = new JfrEvents.Serialization();
+            event.begin();
             TreeFormatter formatter = newFormatter(context, serializers, writer);
             try {
                 writeTree(formatter, root);
             } finally {
                 formatter.close();
             }
+            commit(event, formatter, () -> {
+                // Not all the trees have metrics (e.g. the versioned ones).
+                int size = 0;
+                for (ITree t : root.preOrder())
+                    size++;
+                return size;
+            });
         }
 
         private void forwardException(Exception e) {
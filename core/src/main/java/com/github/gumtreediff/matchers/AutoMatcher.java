@@ -0,0 +1,164 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers;
+
+import com.github.gumtreediff.gen.Registry;
+import com.github.gumtreediff.matchers.optimal.CostEstimator;
+import com.github.gumtreediff.tree.ITree;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Matcher choosing the pipeline to run from the shape of the two trees. The number of elementary
+ * operations of each pipeline is estimated from the sizes and heights of the trees and from the part
+ * of the trees that is shared, estimated by looking up the hashes of the source subtrees in the
+ * destination tree. The most precise pipeline whose estimated cost fits the latency target
+ * {@link #LATENCY_TARGET} (in milliseconds) is used: rtedacdef, then gumtree, then gumtree-simple
+ * and finally gumtree-partition that bounds the cost by the size of the members.
+ * The choice made by the last call to match is available through {@link #getDecision()}.
+ */
+@Register(id = "auto", priority = Registry.Priority.LOW)
+public class AutoMatcher implements Matcher {
+    public static double LATENCY_TARGET =
+            Double.parseDouble(System.getProperty("gt.am.lt", "1000"));
+
+    /**
+     * Rough number of elementary matching operations done per millisecond.
+     */
+    public static double OPERATIONS_PER_MS =
+            Double.parseDouble(System.getProperty("gt.am.opms", "100000"));
+
+    private Decision decision;
+
+    private MatcherListener listener;
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
+        decision = decide(src, dst);
+        Matcher matcher = decision.pipeline.factory.get();
+        matcher.setListener(listener);
+        return matcher.match(src, dst, mappings);
+    }
+
+    @Override
+    public void setListener(MatcherListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the choice made during the last call to match, or null if the matcher has not been run.
+     */
+    public Decision getDecision() {
+        return decision;
+    }
+
+    public static Decision decide(ITree src, ITree dst) {
+        double srcSize = src.getMetrics().size();
+        double dstSize = dst.getMetrics().size();
+        double[] costs = new double[Pipeline.values().length];
+        // RTED runs on the whole trees whatever the shared part is, and is excluded if its tables don't fit.
+        CostEstimator.Estimate rted = CostEstimator.estimateRted(src, dst);
+        costs[Pipeline.RTEDACDEF.ordinal()] = rted.isWithinBudget() ? rted.operations : Double.POSITIVE_INFINITY;
+
+        // The subtree phase is linearithmic, the bottom-up phase compares the changed nodes with each other,
+        // and the classic one also runs a last chance edit distance on small unmatched subtrees.
+        double overlap = estimateOverlap(src, dst);
+        double changed = Math.max(srcSize, dstSize) * (1D - overlap) + 1D;
+        double subtree = (srcSize + dstSize) * Math.log(srcSize + dstSize);
+        double height = Math.min(src.getMetrics().height(), dst.getMetrics().height());
+        costs[Pipeline.GUMTREE_SIMPLE.ordinal()] = subtree + changed * changed;
+        costs[Pipeline.GUMTREE.ordinal()] = subtree + changed * changed * height;
+        costs[Pipeline.GUMTREE_PARTITION.ordinal()] = subtree
+                + changed * Math.min(changed, PartitionMatcher.SIZE_THRESHOLD) * height;
+
+        double budget = LATENCY_TARGET * OPERATIONS_PER_MS;
+        Pipeline chosen = Pipeline.GUMTREE_PARTITION;
+        for (Pipeline p : Pipeline.values()) {
+            if (costs[p.ordinal()] <= budget) {
+                chosen = p;
+                break;
+            }
+        }
+        return new Decision(chosen, (int) srcSize, (int) dstSize, overlap, costs[chosen.ordinal()] / OPERATIONS_PER_MS);
+    }
+
+    /**
+     * Returns the ratio of source nodes belonging to a subtree whose hash is found in the destination tree.
+     */
+    private static double estimateOverlap(ITree src, ITree dst) {
+        Set<Integer> dstHashes = new HashSet<>();
+        for (ITree t : dst.preOrder())
+            dstHashes.add(t.getMetrics().hash());
+
+        int shared = 0;
+        Deque<ITree> todo = new ArrayDeque<>();
+        todo.add(src);
+        while (!todo.isEmpty()) {
+            ITree t = todo.removeFirst();
+            if (dstHashes.contains(t.getMetrics().hash()))
+                shared += t.getMetrics().size();
+            else
+                todo.addAll(t.getChildren());
+        }
+        return (double) shared / src.getMetrics().size();
+    }
+
+    public enum Pipeline {
+        RTEDACDEF("rtedacdef", CompositeMatchers.Rtedacdef::new),
+        GUMTREE("gumtree", CompositeMatchers.ClassicGumtree::new),
+        GUMTREE_SIMPLE("gumtree-simple", CompositeMatchers.SimpleGumtree::new),
+        GUMTREE_PARTITION("gumtree-partition", CompositeMatchers.PartitionGumtree::new);
+
+        public final String id;
+
+        private final Supplier<Matcher> factory;
+
+        Pipeline(String id, Supplier<Matcher> factory) {
+            this.id = id;
+            this.factory = factory;
+        }
+    }
+
+    public static class Decision {
+        public final Pipeline pipeline;
+        public final int srcSize;
+        public final int dstSize;
+        public final double overlap;
+        public final double estimatedTime;
+
+        private Decision(Pipeline pipeline, int srcSize, int dstSize, double overlap, double estimatedTime) {
+            this.pipeline = pipeline;
+            this.srcSize = srcSize;
+            this.dstSize = dstSize;
+            this.overlap = overlap;
+            this.estimatedTime = estimatedTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("matcher: %s (sizes: %d/%d, shared: %.2f, estimated time: %.0fms)",
+                    pipeline.id, srcSize, dstSize, overlap, estimatedTime);
+        }
+    }
+}
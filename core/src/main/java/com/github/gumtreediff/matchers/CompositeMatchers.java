@@ -29,22 +29,78 @@ import com.github.gumtreediff.matchers.heuristic.XyBottomUpMatcher;
 import com.github.gumtreediff.matchers.optimal.rted.RtedMatcher;
 import com.github.gumtreediff.matchers.optimizations.*;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.utils.JfrEvents;
 
 public class CompositeMatchers {
     public static class CompositeMatcher implements Matcher {
         protected final Matcher[] matchers;
 
+        private MatcherListener listener;
+
         public CompositeMatcher(Matcher... matchers) {
             this.matchers = matchers;
         }
 
+        @Override
+        public void setListener(MatcherListener listener) {
+            this.listener = listener;
+        }
+
         @Override
         public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-            for (Matcher matcher : matchers)
-                mappings = matcher.match(src, dst, mappings);
+            if (matchUnchanged(src, dst, mappings))
+                return mappings;
+            return runPhases(src, dst, mappings, new MatchingIndex(src, dst));
+        }
+
+        @Override
+        public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+            if (matchUnchanged(src, dst, mappings))
+                return mappings;
+            return runPhases(src, dst, mappings, index);
+        }
+
+        private static boolean matchUnchanged(ITree src, ITree dst, MappingStore mappings) {
+            // Fast path for unchanged trees: the hashes of the roots are compared first, and when they are
+            // equal the isomorphism is verified before mapping the trees without running any phase.
+            if (mappings.size() == 0 && src.isIsomorphicTo(dst)) {
+                mappings.addMappingRecursively(src, dst);
+                return true;
+            }
+            return false;
+        }
+
+        private MappingStore runPhases(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+            for (Matcher matcher : matchers) {
+                if (listener != null)
+                    listener.phaseStarted(matcher, src, dst, mappings);
+                mappings = runPhase(matcher, src, dst, mappings, index);
+                if (listener != null)
+                    listener.phaseEnded(matcher, src, dst, mappings);
+            }
 
             return mappings;
         }
+
+        private MappingStore runPhase(Matcher matcher, ITree src, ITree dst, MappingStore mappings,
+                                      MatchingIndex index) {
+            JfrEvents.Matching event = new JfrEvents.Matching();
+            int before = mappings.size();
+            event.begin();
+            MappingStore result = matcher.match(src, dst, mappings, index);
+            event.end();
+            if (event.shouldCommit()) {
+                Register register = getClass().getAnnotation(Register.class);
+                event.matcher = register == null ? getClass().getSimpleName() : register.id();
+                event.phase = matcher.getClass().getSimpleName();
+                event.srcSize = src.getMetrics().size();
+                event.dstSize = dst.getMetrics().size();
+                event.mappingsBefore = before;
+                event.mappingsAfter = result.size();
+                event.commit();
+            }
+            return result;
+        }
     }
 
     @Register(id = "gumtree", defaultMatcher = true, priority = Registry.Priority.HIGH)
@@ -146,4 +202,14 @@ public class CompositeMatchers {
                     new CrossMoveMatcherThetaF());
         }
     }
-}
\ No newline at end of file
+
+    @Register(id = "gumtree-partition")
+    public static class PartitionGumtree extends PartitionMatcher {
+        /**
+         * Instantiates GumTree run member by member on large trees.
+         */
+        public PartitionGumtree() {
+            super(ClassicGumtree::new);
+        }
+    }
+}
@@ -31,4 +31,19 @@ public interface Matcher {
     default MappingStore match(ITree src, ITree dst) {
         return match(src, dst, new MappingStore(src, dst));
     }
+
+    /**
+     * Matches the trees using the given index of their nodes, built once by the composite matchers
+     * for all their phases. Matchers not using the index ignore it.
+     */
+    default MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        return match(src, dst, mappings);
+    }
+
+    /**
+     * Sets the listener notified of the phases run by this matcher. Matchers made of a single
+     * phase ignore it.
+     */
+    default void setListener(MatcherListener listener) {
+    }
 }
@@ -0,0 +1,38 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers;
+
+import com.github.gumtreediff.tree.ITree;
+
+/**
+ * Receives a notification before and after each phase run by a matcher. The two calls
+ * for a given phase are always made on the same thread, but phases of different matchers
+ * can be notified concurrently (for instance by {@link PartitionMatcher}).
+ *
+ * @see Matcher#setListener(MatcherListener)
+ * @see PhaseStatistics
+ */
+public interface MatcherListener {
+    default void phaseStarted(Matcher phase, ITree src, ITree dst, MappingStore mappings) {
+    }
+
+    default void phaseEnded(Matcher phase, ITree src, ITree dst, MappingStore mappings) {
+    }
+}
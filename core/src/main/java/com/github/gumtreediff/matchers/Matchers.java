@@ -40,6 +40,8 @@ public class Matchers extends Registry<String, Matcher, Register> {
         install(CompositeMatchers.SimpleGumtree.class);
         install(CompositeMatchers.ChangeDistiller.class);
         install(CompositeMatchers.XyMatcher.class);
+        install(CompositeMatchers.PartitionGumtree.class);
+        install(AutoMatcher.class);
         install(LcsMatcher.class);
     }
 
@@ -0,0 +1,39 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers;
+
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeIndex;
+
+/**
+ * Indices of the nodes of the source and destination trees of a diff. A composite matcher builds it
+ * once and gives it to each of its phases (see {@link Matcher#match(ITree, ITree, MappingStore, MatchingIndex)}),
+ * so that they do not traverse the trees again to list their nodes.
+ */
+public class MatchingIndex {
+    public final TreeIndex src;
+
+    public final TreeIndex dst;
+
+    public MatchingIndex(ITree src, ITree dst) {
+        this.src = new TreeIndex(src);
+        this.dst = new TreeIndex(dst);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers;
+
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Tree;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Divide and conquer matcher for very large trees. The trees are first cut into members: the nodes
+ * whose size does not exceed {@link #SIZE_THRESHOLD} and whose parent does (e.g. the types, methods
+ * and fields of a big compilation unit). Members are paired across the two trees, first by hash
+ * then by signature (type, label and labels of the leaf children), considering only the unambiguous
+ * candidates. Each pair of members is then matched independently and in parallel, by a fresh matcher
+ * obtained from the factory and run on a detached copy of the two members. Finally, a global pass
+ * of the same matcher is run on a copy of the trees seeded with the member mappings, in order
+ * to match the unpaired members, the nodes above the members and the nodes moved across members.
+ */
+public class PartitionMatcher implements Matcher {
+    public static int SIZE_THRESHOLD =
+            Integer.parseInt(System.getProperty("gt.pm.szt", "2000"));
+
+    private final Supplier<? extends Matcher> factory;
+
+    private MatcherListener listener;
+
+    public PartitionMatcher(Supplier<? extends Matcher> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void setListener(MatcherListener listener) {
+        this.listener = listener;
+    }
+
+    private Matcher newMatcher() {
+        Matcher matcher = factory.get();
+        matcher.setListener(listener);
+        return matcher;
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
+        if (src.getMetrics().size() <= SIZE_THRESHOLD && dst.getMetrics().size() <= SIZE_THRESHOLD)
+            return newMatcher().match(src, dst, mappings);
+
+        if (mappings.size() == 0 && src.isIsomorphicTo(dst)) {
+            mappings.addMappingRecursively(src, dst);
+            return mappings;
+        }
+
+        List<ITree[]> pairs = pairMembers(getMembers(src), getMembers(dst), mappings);
+        List<List<Mapping>> memberMappings = pairs.parallelStream()
+                .map(pair -> matchMembers(pair[0], pair[1])).collect(Collectors.toList());
+        for (List<Mapping> ms : memberMappings)
+            for (Mapping m : ms)
+                if (mappings.isMappingAllowed(m.first, m.second))
+                    mappings.addMapping(m.first, m.second);
+
+        matchRemainder(src, dst, mappings);
+        return mappings;
+    }
+
+    private static List<ITree> getMembers(ITree root) {
+        List<ITree> members = new ArrayList<>();
+        Deque<ITree> todo = new ArrayDeque<>(root.getChildren());
+        while (!todo.isEmpty()) {
+            ITree t = todo.removeFirst();
+            if (t.getMetrics().size() > SIZE_THRESHOLD && !t.isLeaf()) {
+                List<ITree> children = t.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--)
+                    todo.addFirst(children.get(i));
+            }
+            else
+                members.add(t);
+        }
+        return members;
+    }
+
+    private static List<ITree[]> pairMembers(List<ITree> srcMembers, List<ITree> dstMembers,
+                                             MappingStore mappings) {
+        Map<Integer, List<ITree>> srcByHash = groupBy(srcMembers, t -> t.getMetrics().hash());
+        Map<Integer, List<ITree>> dstByHash = groupBy(dstMembers, t -> t.getMetrics().hash());
+        List<ITree[]> pairs = new ArrayList<>();
+        Set<ITree> paired = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Integer, List<ITree>> e : srcByHash.entrySet()) {
+            List<ITree> dsts = dstByHash.get(e.getKey());
+            if (e.getValue().size() == 1 && dsts != null && dsts.size() == 1) {
+                ITree s = e.getValue().get(0);
+                ITree d = dsts.get(0);
+                if (s.isIsomorphicTo(d) && mappings.areBothUnmapped(s, d))
+                    addPair(pairs, paired, s, d);
+            }
+        }
+
+        Map<String, List<ITree>> srcBySignature = groupBy(unpaired(srcMembers, paired),
+                PartitionMatcher::getSignature);
+        Map<String, List<ITree>> dstBySignature = groupBy(unpaired(dstMembers, paired),
+                PartitionMatcher::getSignature);
+        for (Map.Entry<String, List<ITree>> e : srcBySignature.entrySet()) {
+            List<ITree> dsts = dstBySignature.get(e.getKey());
+            if (e.getValue().size() == 1 && dsts != null && dsts.size() == 1) {
+                ITree s = e.getValue().get(0);
+                ITree d = dsts.get(0);
+                if (mappings.isMappingAllowed(s, d))
+                    addPair(pairs, paired, s, d);
+            }
+        }
+
+        return pairs;
+    }
+
+    private static void addPair(List<ITree[]> pairs, Set<ITree> paired, ITree src, ITree dst) {
+        pairs.add(new ITree[] {src, dst});
+        paired.add(src);
+        paired.add(dst);
+    }
+
+    private static List<ITree> unpaired(List<ITree> members, Set<ITree> paired) {
+        List<ITree> unpaired = new ArrayList<>();
+        for (ITree t : members)
+            if (!paired.contains(t))
+                unpaired.add(t);
+        return unpaired;
+    }
+
+    private static <K> Map<K, List<ITree>> groupBy(List<ITree> trees, Function<ITree, K> key) {
+        Map<K, List<ITree>> groups = new LinkedHashMap<>();
+        for (ITree t : trees)
+            groups.computeIfAbsent(key.apply(t), k -> new ArrayList<>(1)).add(t);
+        return groups;
+    }
+
+    private static String getSignature(ITree t) {
+        StringBuilder b = new StringBuilder();
+        b.append(t.getType().name).append('@').append(t.getLabel());
+        for (ITree c : t.getChildren())
+            if (c.isLeaf())
+                b.append('@').append(c.getType().name).append(':').append(c.getLabel());
+        return b.toString();
+    }
+
+    private List<Mapping> matchMembers(ITree src, ITree dst) {
+        List<Mapping> result = new ArrayList<>();
+        if (src.isIsomorphicTo(dst)) {
+            Iterator<ITree> dsts = dst.preOrder().iterator();
+            for (ITree s : src.preOrder())
+                result.add(new Mapping(s, dsts.next()));
+            return result;
+        }
+
+        Map<ITree, ITree> srcOrigins = new IdentityHashMap<>();
+        Map<ITree, ITree> dstOrigins = new IdentityHashMap<>();
+        ITree srcCopy = copy(src, srcOrigins);
+        ITree dstCopy = copy(dst, dstOrigins);
+        for (Mapping m : newMatcher().match(srcCopy, dstCopy, new MappingStore(srcCopy, dstCopy)))
+            result.add(new Mapping(srcOrigins.get(m.first), dstOrigins.get(m.second)));
+        return result;
+    }
+
+    /**
+     * Matches the trees again, seeded with the mappings of the members so that the nodes above
+     * the members keep the bottom-up evidence of their mapped descendants. The matcher runs on copies,
+     * since its subtree matching does not check the seeded mappings, and only its allowed mappings are kept.
+     */
+    private void matchRemainder(ITree src, ITree dst, MappingStore mappings) {
+        Map<ITree, ITree> srcOrigins = new IdentityHashMap<>();
+        Map<ITree, ITree> dstOrigins = new IdentityHashMap<>();
+        ITree srcCopy = copy(src, srcOrigins);
+        ITree dstCopy = copy(dst, dstOrigins);
+        Map<ITree, ITree> dstCopies = new IdentityHashMap<>();
+        for (Map.Entry<ITree, ITree> e : dstOrigins.entrySet())
+            dstCopies.put(e.getValue(), e.getKey());
+        MappingStore remainderMappings = new MappingStore(srcCopy, dstCopy);
+        for (Map.Entry<ITree, ITree> e : srcOrigins.entrySet())
+            if (mappings.isSrcMapped(e.getValue()))
+                remainderMappings.addMapping(e.getKey(), dstCopies.get(mappings.getDstForSrc(e.getValue())));
+        for (Mapping m : newMatcher().match(srcCopy, dstCopy, remainderMappings)) {
+            ITree s = srcOrigins.get(m.first);
+            ITree d = dstOrigins.get(m.second);
+            if (mappings.isMappingAllowed(s, d))
+                mappings.addMapping(s, d);
+        }
+    }
+
+    /**
+     * Copies the given tree as a new root, and records the original node of each copied node.
+     */
+    private static ITree copy(ITree t, Map<ITree, ITree> origins) {
+        ITree copy = new Tree(t.getType(), t.getLabel());
+        copy.setPos(t.getPos());
+        copy.setLength(t.getLength());
+        origins.put(copy, t);
+        for (ITree c : t.getChildren())
+            copy.addChild(copy(c, origins));
+        return copy;
+    }
+}
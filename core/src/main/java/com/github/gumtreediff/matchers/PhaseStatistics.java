@@ -0,0 +1,168 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers;
+
+import com.github.gumtreediff.tree.ITree;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+/**
+ * Listener collecting, for each phase of a matcher, the number of runs, the wall time, the
+ * bytes allocated by the running thread and the number of mappings added. Phases are identified
+ * by the simple name of their class and their statistics are summed over all the runs, so that
+ * a single collector can be shared by several matchers, even concurrently.
+ * The allocated bytes are only measured when the JVM supports it, they are -1 otherwise.
+ */
+public class PhaseStatistics implements MatcherListener {
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    private final ThreadLocal<Deque<long[]>> starts = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public void phaseStarted(Matcher phase, ITree src, ITree dst, MappingStore mappings) {
+        starts.get().push(new long[] {mappings.size(), allocatedBytes(), System.nanoTime()});
+    }
+
+    @Override
+    public void phaseEnded(Matcher phase, ITree src, ITree dst, MappingStore mappings) {
+        long end = System.nanoTime();
+        long allocated = allocatedBytes();
+        long[] start = starts.get().pop();
+        synchronized (phases) {
+            Phase p = phases.computeIfAbsent(phase.getClass().getSimpleName(), Phase::new);
+            p.runs++;
+            p.wallTime += end - start[2];
+            p.allocatedBytes = (allocated < 0 || p.allocatedBytes < 0) ? -1 : p.allocatedBytes + allocated - start[1];
+            p.mappingsAdded += mappings.size() - start[0];
+        }
+    }
+
+    /**
+     * Returns a copy of the statistics of each phase, in the order the phases were first run.
+     */
+    public List<Phase> getPhases() {
+        List<Phase> copies = new ArrayList<>();
+        synchronized (phases) {
+            for (Phase p : phases.values())
+                copies.add(new Phase(p));
+        }
+        return copies;
+    }
+
+    public void clear() {
+        synchronized (phases) {
+            phases.clear();
+        }
+    }
+
+    /**
+     * Returns the statistics as CSV, with one row per phase.
+     */
+    public String toCsv() {
+        StringBuilder b = new StringBuilder("phase,runs,wallTimeMs,allocatedBytes,mappingsAdded\n");
+        for (Phase p : getPhases())
+            b.append(String.format(Locale.ROOT, "%s,%d,%.3f,%d,%d\n",
+                    p.name, p.runs, p.getWallTimeMs(), p.allocatedBytes, p.mappingsAdded));
+        return b.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        for (Phase p : getPhases())
+            b.append(p).append('\n');
+        return b.toString();
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS == null ? -1 : ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+                if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled())
+                    return allocations;
+            }
+        } catch (LinkageError | UnsupportedOperationException e) {
+            // The allocated bytes are not available on this JVM.
+        }
+        return null;
+    }
+
+    public static class Phase {
+        public final String name;
+        private int runs;
+        private long wallTime;
+        private long allocatedBytes;
+        private int mappingsAdded;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        private Phase(Phase other) {
+            this.name = other.name;
+            this.runs = other.runs;
+            this.wallTime = other.wallTime;
+            this.allocatedBytes = other.allocatedBytes;
+            this.mappingsAdded = other.mappingsAdded;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        /**
+         * Returns the total wall time spent in the phase, in nanoseconds.
+         */
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        public double getWallTimeMs() {
+            return wallTime / 1e6;
+        }
+
+        /**
+         * Returns the total number of bytes allocated by the phase, or -1 if they can't be measured.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public int getMappingsAdded() {
+            return mappingsAdded;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: runs: %d, time: %.3f ms, allocated: %s, mappings added: %d",
+                    name, runs, getWallTimeMs(), allocatedBytes < 0 ? "n/a" : allocatedBytes + " bytes",
+                    mappingsAdded);
+        }
+    }
+}
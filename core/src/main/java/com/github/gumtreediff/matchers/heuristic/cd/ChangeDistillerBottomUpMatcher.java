@@ -21,12 +21,10 @@
 package com.github.gumtreediff.matchers.heuristic.cd;
 
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.SimilarityMetrics;
 import com.github.gumtreediff.tree.ITree;
-import com.github.gumtreediff.tree.TreeUtils;
-
-import java.util.List;
 
 public class ChangeDistillerBottomUpMatcher implements Matcher {
 
@@ -38,7 +36,12 @@ public class ChangeDistillerBottomUpMatcher implements Matcher {
 
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        Implementation impl = new Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        Implementation impl = new Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -47,20 +50,21 @@ public class ChangeDistillerBottomUpMatcher implements Matcher {
         private final ITree src;
         private final ITree dst;
         private final MappingStore mappings;
+        private final MatchingIndex index;
 
-        public Implementation(ITree src, ITree dst, MappingStore mappings) {
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
             this.src = src;
             this.dst = dst;
             this.mappings = mappings;
+            this.index = index;
         }
 
         public void match() {
-            List<ITree> dstTrees = TreeUtils.postOrder(this.dst);
-            for (ITree currentSrcTree : this.src.postOrder()) {
-                int numberOfLeaves = numberOfLeaves(currentSrcTree);
-                for (ITree currentDstTree : dstTrees) {
-                    if (mappings.isMappingAllowed(currentSrcTree, currentDstTree)
-                            && !(currentSrcTree.isLeaf() || currentDstTree.isLeaf())) {
+            // Only inner nodes of the same type can be mapped, so the other nodes are skipped.
+            for (ITree currentSrcTree : index.src.innerNodes()) {
+                int numberOfLeaves = index.src.leafCount(currentSrcTree);
+                for (ITree currentDstTree : index.dst.nodesOfType(currentSrcTree.getType())) {
+                    if (mappings.isMappingAllowed(currentSrcTree, currentDstTree) && !currentDstTree.isLeaf()) {
                         double similarity =
                                 SimilarityMetrics.chawatheSimilarity(currentSrcTree, currentDstTree, mappings);
                         if ((numberOfLeaves > MAX_NUMBER_OF_LEAVES && similarity >= STRUCT_SIM_THRESHOLD_1)
@@ -72,13 +76,5 @@ public class ChangeDistillerBottomUpMatcher implements Matcher {
                 }
             }
         }
-
-        private int numberOfLeaves(ITree root) {
-            int numberOfLeaves = 0;
-            for (ITree tree : root.getDescendants())
-                if (tree.isLeaf())
-                    numberOfLeaves++;
-            return numberOfLeaves;
-        }
     }
 }
@@ -22,10 +22,9 @@ package com.github.gumtreediff.matchers.heuristic.cd;
 
 import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
-import com.github.gumtreediff.tree.TreeUtils;
-import org.simmetrics.StringMetrics;
 
 import java.util.*;
 
@@ -35,7 +34,12 @@ public class ChangeDistillerLeavesMatcher implements Matcher {
 
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        Implementation impl = new Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        Implementation impl = new Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -44,63 +48,40 @@ public class ChangeDistillerLeavesMatcher implements Matcher {
         private final ITree src;
         private final ITree dst;
         private final MappingStore mappings;
+        private final MatchingIndex index;
 
-        public Implementation(ITree src, ITree dst, MappingStore mappings) {
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
             this.src = src;
             this.dst = dst;
             this.mappings = mappings;
+            this.index = index;
         }
 
         public void match() {
-            List<Mapping> leavesMappings = new ArrayList<>();
-            List<ITree> dstLeaves = retainLeaves(TreeUtils.postOrder(dst));
-            for (Iterator<ITree> srcLeaves = TreeUtils.leafIterator(
-                    TreeUtils.postOrderIterator(src)); srcLeaves.hasNext(); ) {
-                ITree srcLeaf = srcLeaves.next();
-                for (ITree dstLeaf : dstLeaves) {
-                    if (mappings.isMappingAllowed(srcLeaf, dstLeaf)) {
-                        double sim = StringMetrics.qGramsDistance().compare(srcLeaf.getLabel(), dstLeaf.getLabel());
-                        if (sim > LABEL_SIM_THRESHOLD)
-                            leavesMappings.add(new Mapping(srcLeaf, dstLeaf));
-                    }
-                }
-            }
-
-            Set<ITree> ignoredSrcTrees = new HashSet<>();
-            Set<ITree> ignoredDstTrees = new HashSet<>();
-            Collections.sort(leavesMappings, new LeafMappingComparator());
-            while (leavesMappings.size() > 0) {
-                Mapping bestMapping = leavesMappings.remove(0);
-                if (!(ignoredSrcTrees.contains(bestMapping.first)
-                        || ignoredDstTrees.contains(bestMapping.second))) {
-                    mappings.addMapping(bestMapping.first, bestMapping.second);
-                    ignoredSrcTrees.add(bestMapping.first);
-                    ignoredDstTrees.add(bestMapping.second);
-                }
+            List<LeafMapping> leavesMappings = new ArrayList<>();
+            List<ITree> dstLeaves = index.dst.leaves();
+            LabelTrigramIndex.Query query = new LabelTrigramIndex(dstLeaves).newQuery();
+            for (ITree srcLeaf : index.src.leaves()) {
+                query.forEachCandidate(srcLeaf.getLabel(), LABEL_SIM_THRESHOLD, (id, sim) -> {
+                    ITree dstLeaf = dstLeaves.get(id);
+                    if (mappings.isMappingAllowed(srcLeaf, dstLeaf))
+                        leavesMappings.add(new LeafMapping(srcLeaf, dstLeaf, sim));
+                });
             }
-        }
 
-        public List<ITree> retainLeaves(List<ITree> trees) {
-            Iterator<ITree> treeIterator = trees.iterator();
-            while (treeIterator.hasNext()) {
-                ITree tree = treeIterator.next();
-                if (!tree.isLeaf())
-                    treeIterator.remove();
-            }
-            return trees;
+            leavesMappings.sort(Comparator.comparingDouble((m) -> m.sim));
+            for (LeafMapping m : leavesMappings)
+                if (mappings.isMappingAllowed(m.first, m.second))
+                    mappings.addMapping(m.first, m.second);
         }
     }
 
-    private static class LeafMappingComparator implements Comparator<Mapping> {
+    private static class LeafMapping extends Mapping {
+        private final double sim;
 
-        @Override
-        public int compare(Mapping m1, Mapping m2) {
-            return Double.compare(sim(m1), sim(m2));
+        public LeafMapping(ITree src, ITree dst, double sim) {
+            super(src, dst);
+            this.sim = sim;
         }
-
-        public double sim(Mapping m) {
-            return StringMetrics.qGramsDistance().compare(m.first.getLabel(), m.second.getLabel());
-        }
-
     }
 }
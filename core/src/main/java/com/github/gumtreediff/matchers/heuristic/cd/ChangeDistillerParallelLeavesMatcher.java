@@ -19,39 +19,42 @@
  */
 package com.github.gumtreediff.matchers.heuristic.cd;
 
-import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
-import com.github.gumtreediff.tree.TreeUtils;
 
-import org.simmetrics.StringMetrics;
-
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
- * Parallel variant of the ChangeDistiller leaves matcher.
+ * Parallel variant of the ChangeDistiller leaves matcher. The candidate mappings of the source leaves
+ * are searched by fork/join tasks splitting the source leaves on demand, run in {@link #POOL}.
+ * The pool is shared by all the instances of the matcher, so that concurrent diffs do not create
+ * threads. It is the common pool unless a parallelism is given in the <code>gt.cd.par</code> property.
  */
 public class ChangeDistillerParallelLeavesMatcher implements Matcher {
 
     private static final double LABEL_SIM_THRESHOLD = 0.5D;
 
+    private static final int MIN_LEAVES_PER_TASK = 16;
+
+    public static ForkJoinPool POOL = createPool(Integer.parseInt(System.getProperty("gt.cd.par", "0")));
+
+    private static ForkJoinPool createPool(int parallelism) {
+        return parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+    }
+
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        Implementation impl = new Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        Implementation impl = new Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -60,142 +63,162 @@ public class ChangeDistillerParallelLeavesMatcher implements Matcher {
         private final ITree src;
         private final ITree dst;
         private final MappingStore mappings;
+        private final MatchingIndex index;
 
-        public Implementation(ITree src, ITree dst, MappingStore mappings) {
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
             this.src = src;
             this.dst = dst;
             this.mappings = mappings;
+            this.index = index;
         }
 
         public void match() {
-            List<ITree> dstLeaves = retainLeaves(TreeUtils.postOrder(dst));
-            List<ITree> srcLeaves = retainLeaves(TreeUtils.postOrder(src));
-
-            List<Mapping> leafMappings = new LinkedList<>();
-            HashMap<Mapping, Double> simMap = new HashMap<>();
-            int cores = Runtime.getRuntime().availableProcessors();
-            ExecutorService service = Executors.newFixedThreadPool(cores);
-            @SuppressWarnings("unchecked")
-            Future<ChangeDistillerCallableResult>[] futures = new Future[cores];
-            for (int i = 0; i < cores; i++) {
-                futures[i] =
-                        service.submit(new ChangeDistillerLeavesMatcherCallable(srcLeaves, dstLeaves, cores, i));
-            }
-            for (int i = 0; i < cores; i++) {
-                try {
-                    ChangeDistillerCallableResult result = futures[i].get();
-                    leafMappings.addAll(result.leafMappings);
-                    simMap.putAll(result.simMap);
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
-                }
-
-            }
-            service.shutdown();
-            try {
-                service.awaitTermination(10, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-
-            Set<ITree> srcIgnored = new HashSet<>();
-            Set<ITree> dstIgnored = new HashSet<>();
-            Collections.sort(leafMappings, new LeafMappingComparator(simMap));
-            while (leafMappings.size() > 0) {
-                Mapping best = leafMappings.remove(0);
-                if (!(srcIgnored.contains(best.first) || dstIgnored.contains(best.second))) {
-                    mappings.addMapping(best.first, best.second);
-                    srcIgnored.add(best.first);
-                    dstIgnored.add(best.second);
-                }
-            }
-        }
-
-        private class ChangeDistillerCallableResult {
-            public final List<Mapping> leafMappings;
-            public final HashMap<Mapping, Double> simMap;
-
-            public ChangeDistillerCallableResult(List<Mapping> leafMappings,
-                                                 HashMap<Mapping, Double> simMap) {
-                this.leafMappings = leafMappings;
-                this.simMap = simMap;
+            List<ITree> dstLeaves = index.dst.leaves();
+            List<ITree> srcLeaves = index.src.leaves();
+            LabelTrigramIndex labelIndex = new LabelTrigramIndex(dstLeaves);
+
+            int grain = Math.max(MIN_LEAVES_PER_TASK, srcLeaves.size() / (POOL.getParallelism() * 8));
+            Candidates candidates = POOL.invoke(
+                    new CandidatesTask(srcLeaves, dstLeaves, labelIndex, grain, 0, srcLeaves.size()));
+
+            // Same order than a stable sort of the candidates by increasing similarity.
+            CandidateQueue queue = new CandidateQueue(candidates);
+            while (!queue.isEmpty()) {
+                int best = queue.poll();
+                ITree srcLeaf = srcLeaves.get(candidates.srcIds[best]);
+                ITree dstLeaf = dstLeaves.get(candidates.dstIds[best]);
+                if (mappings.isMappingAllowed(srcLeaf, dstLeaf))
+                    mappings.addMapping(srcLeaf, dstLeaf);
             }
         }
 
-        private class ChangeDistillerLeavesMatcherCallable
-                implements Callable<ChangeDistillerCallableResult> {
-
-            HashMap<String, Double> cacheResults = new HashMap<>();
-            private int cores;
-            private List<ITree> dstLeaves;
-            List<Mapping> leafMappings = new LinkedList<>();
-            HashMap<Mapping, Double> simMap = new HashMap<>();
-            private List<ITree> srcLeaves;
-            private int start;
+        private class CandidatesTask extends RecursiveTask<Candidates> {
+            private final List<ITree> srcLeaves;
+            private final List<ITree> dstLeaves;
+            private final LabelTrigramIndex labelIndex;
+            private final int grain;
+            private final int start;
+            private final int end;
 
-            public ChangeDistillerLeavesMatcherCallable(List<ITree> srcLeaves, List<ITree> dstLeaves,
-                                                        int cores, int start) {
+            public CandidatesTask(List<ITree> srcLeaves, List<ITree> dstLeaves, LabelTrigramIndex labelIndex,
+                                  int grain, int start, int end) {
                 this.srcLeaves = srcLeaves;
                 this.dstLeaves = dstLeaves;
-                this.cores = cores;
+                this.labelIndex = labelIndex;
+                this.grain = grain;
                 this.start = start;
+                this.end = end;
             }
 
             @Override
-            public ChangeDistillerCallableResult call() throws Exception {
-                for (int i = start; i < srcLeaves.size(); i += cores) {
+            protected Candidates compute() {
+                if (end - start > grain) {
+                    int middle = (start + end) >>> 1;
+                    CandidatesTask right = new CandidatesTask(srcLeaves, dstLeaves, labelIndex, grain, middle, end);
+                    right.fork();
+                    Candidates left = new CandidatesTask(srcLeaves, dstLeaves, labelIndex, grain, start, middle)
+                            .compute();
+                    return left.append(right.join());
+                }
+
+                Candidates candidates = new Candidates();
+                LabelTrigramIndex.Query query = labelIndex.newQuery();
+                for (int i = start; i < end; i++) {
                     ITree srcLeaf = srcLeaves.get(i);
-                    for (ITree dstLeaf : dstLeaves) {
-                        if (mappings.isMappingAllowed(srcLeaf, dstLeaf)) {
-                            double sim = 0f;
-                            // TODO: Use a unique string instead of @@
-                            if (cacheResults.containsKey(srcLeaf.getLabel() + "@@" + dstLeaf.getLabel())) {
-                                sim = cacheResults.get(srcLeaf.getLabel() + "@@" + dstLeaf.getLabel());
-                            } else {
-                                sim = StringMetrics.qGramsDistance().compare(srcLeaf.getLabel(), dstLeaf.getLabel());
-                                cacheResults.put(srcLeaf.getLabel() + "@@" + dstLeaf.getLabel(), sim);
-                            }
-                            if (sim > LABEL_SIM_THRESHOLD) {
-                                Mapping mapping = new Mapping(srcLeaf, dstLeaf);
-                                leafMappings.add(new Mapping(srcLeaf, dstLeaf));
-                                simMap.put(mapping, sim);
-                            }
-                        }
-                    }
+                    int srcId = i;
+                    query.forEachCandidate(srcLeaf.getLabel(), LABEL_SIM_THRESHOLD, (dstId, sim) -> {
+                        if (mappings.isMappingAllowed(srcLeaf, dstLeaves.get(dstId)))
+                            candidates.add(srcId, dstId, sim);
+                    });
                 }
-                return new ChangeDistillerCallableResult(leafMappings, simMap);
+                return candidates;
             }
-
         }
+    }
 
-        private class LeafMappingComparator implements Comparator<Mapping> {
-            HashMap<Mapping, Double> simMap = null;
+    /**
+     * Candidate mappings stored as parallel arrays of source leaf ids, destination leaf ids
+     * and similarities.
+     */
+    private static final class Candidates {
+        private int[] srcIds = new int[16];
+        private int[] dstIds = new int[16];
+        private double[] sims = new double[16];
+        private int size;
+
+        private void add(int srcId, int dstId, double sim) {
+            ensureCapacity(size + 1);
+            srcIds[size] = srcId;
+            dstIds[size] = dstId;
+            sims[size] = sim;
+            size++;
+        }
 
-            public LeafMappingComparator(HashMap<Mapping, Double> simMap) {
-                this.simMap = simMap;
-            }
+        private Candidates append(Candidates other) {
+            ensureCapacity(size + other.size);
+            System.arraycopy(other.srcIds, 0, srcIds, size, other.size);
+            System.arraycopy(other.dstIds, 0, dstIds, size, other.size);
+            System.arraycopy(other.sims, 0, sims, size, other.size);
+            size += other.size;
+            return this;
+        }
 
-            @Override
-            public int compare(Mapping m1, Mapping m2) {
-                return Double.compare(sim(m1), sim(m2));
+        private void ensureCapacity(int capacity) {
+            if (capacity > srcIds.length) {
+                int length = Math.max(capacity, srcIds.length * 2);
+                srcIds = Arrays.copyOf(srcIds, length);
+                dstIds = Arrays.copyOf(dstIds, length);
+                sims = Arrays.copyOf(sims, length);
             }
+        }
+    }
 
-            public double sim(Mapping mapping) {
+    /**
+     * Binary min-heap of candidate ids, ordered by similarity then by id.
+     */
+    private static final class CandidateQueue {
+        private final double[] sims;
+        private final int[] heap;
+        private int size;
+
+        private CandidateQueue(Candidates candidates) {
+            sims = candidates.sims;
+            size = candidates.size;
+            heap = new int[size];
+            for (int i = 0; i < size; i++)
+                heap[i] = i;
+            for (int i = size / 2 - 1; i >= 0; i--)
+                siftDown(i);
+        }
 
-                return simMap.get(mapping);
-            }
+        private boolean isEmpty() {
+            return size == 0;
+        }
 
+        private int poll() {
+            int first = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+            return first;
         }
-    }
 
-    private static List<ITree> retainLeaves(List<ITree> trees) {
-        Iterator<ITree> tit = trees.iterator();
-        while (tit.hasNext()) {
-            ITree tree = tit.next();
-            if (!tree.isLeaf()) {
-                tit.remove();
+        private void siftDown(int i) {
+            int id = heap[i];
+            int child;
+            while ((child = 2 * i + 1) < size) {
+                if (child + 1 < size && before(heap[child + 1], heap[child]))
+                    child++;
+                if (!before(heap[child], id))
+                    break;
+                heap[i] = heap[child];
+                i = child;
             }
+            heap[i] = id;
+        }
+
+        private boolean before(int first, int second) {
+            int c = Double.compare(sims[first], sims[second]);
+            return c < 0 || (c == 0 && first < second);
         }
-        return trees;
     }
 }
@@ -0,0 +1,227 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers.heuristic.cd;
+
+import com.github.gumtreediff.tree.ITree;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index of the trigrams of the labels of a list of trees, used to retrieve the trees
+ * whose label is similar to a given label without comparing it to every indexed label.
+ * The similarity is the Dice coefficient over the multisets of trigrams of the labels padded
+ * with two <code>#</code> on each side, which is the similarity computed by the simmetrics
+ * q-grams distance used by the ChangeDistiller leaves matchers.
+ */
+public final class LabelTrigramIndex {
+    private static final long[] NO_TRIGRAMS = new long[0];
+
+    private static final char PADDING = '#';
+
+    private final int size;
+
+    private final int[] trigramCounts;
+
+    private final int[] emptyLabels;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    public LabelTrigramIndex(List<ITree> trees) {
+        size = trees.size();
+        trigramCounts = new int[size];
+        int emptyCount = 0;
+        for (int id = 0; id < size; id++) {
+            long[] trigrams = trigrams(trees.get(id).getLabel());
+            trigramCounts[id] = trigrams.length;
+            if (trigrams.length == 0)
+                emptyCount++;
+            for (int i = 0; i < trigrams.length; ) {
+                int j = nextTrigram(trigrams, i);
+                postings.computeIfAbsent(trigrams[i], (trigram) -> new Postings()).add(id, j - i);
+                i = j;
+            }
+        }
+
+        emptyLabels = new int[emptyCount];
+        int k = 0;
+        for (int id = 0; id < size; id++)
+            if (trigramCounts[id] == 0)
+                emptyLabels[k++] = id;
+    }
+
+    /**
+     * Returns the number of indexed trees.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a new query on this index. A query holds the buffers used to score the indexed
+     * trees: it can be reused for any number of labels but must not be shared between threads.
+     */
+    public Query newQuery() {
+        return new Query();
+    }
+
+    /**
+     * Returns the sorted trigrams of the given label, each trigram being encoded in a long.
+     */
+    public static long[] trigrams(String label) {
+        int length = label.length();
+        if (length == 0)
+            return NO_TRIGRAMS;
+
+        long[] trigrams = new long[length + 2];
+        for (int i = 0; i < trigrams.length; i++)
+            trigrams[i] = ((long) paddedCharAt(label, i) << 32)
+                    | ((long) paddedCharAt(label, i + 1) << 16)
+                    | paddedCharAt(label, i + 2);
+        Arrays.sort(trigrams);
+        return trigrams;
+    }
+
+    private static char paddedCharAt(String label, int i) {
+        if (i < 2 || i >= label.length() + 2)
+            return PADDING;
+        return label.charAt(i - 2);
+    }
+
+    private static int nextTrigram(long[] trigrams, int i) {
+        int j = i + 1;
+        while (j < trigrams.length && trigrams[j] == trigrams[i])
+            j++;
+        return j;
+    }
+
+    /**
+     * Returns the similarity of two labels given by their sorted trigrams.
+     */
+    public static double similarity(long[] first, long[] second) {
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] == second[j]) {
+                common++;
+                i++;
+                j++;
+            }
+            else if (first[i] < second[j])
+                i++;
+            else
+                j++;
+        }
+        return similarity(common, first.length, second.length);
+    }
+
+    public static double similarity(String first, String second) {
+        return similarity(trigrams(first), trigrams(second));
+    }
+
+    private static double similarity(int common, int first, int second) {
+        if (first == 0 && second == 0)
+            return 1.0;
+        if (first == 0 || second == 0)
+            return 0.0;
+        return 2.0 * common / (first + second);
+    }
+
+    /**
+     * Receives the indexed trees matching a query.
+     */
+    @FunctionalInterface
+    public interface CandidateHandler {
+        void candidate(int id, double similarity);
+    }
+
+    public final class Query {
+        private final int[] common = new int[size];
+
+        private final int[] touched = new int[size];
+
+        private Query() {
+        }
+
+        /**
+         * Calls the given handler, in increasing order of index, for every indexed tree whose label
+         * has a similarity strictly greater than the given threshold with the given label.
+         * Only the trees sharing at least one trigram with the label are scored, unless the
+         * threshold is negative.
+         */
+        public void forEachCandidate(String label, double threshold, CandidateHandler handler) {
+            long[] trigrams = trigrams(label);
+            int touchedCount = 0;
+            for (int i = 0; i < trigrams.length; ) {
+                int j = nextTrigram(trigrams, i);
+                Postings p = postings.get(trigrams[i]);
+                if (p != null) {
+                    for (int k = 0; k < p.size; k += 2) {
+                        int id = p.entries[k];
+                        if (common[id] == 0)
+                            touched[touchedCount++] = id;
+                        common[id] += Math.min(j - i, p.entries[k + 1]);
+                    }
+                }
+                i = j;
+            }
+
+            if (threshold < 0.0) {
+                for (int id = 0; id < size; id++)
+                    emit(id, trigrams.length, threshold, handler);
+            }
+            else if (trigrams.length == 0) {
+                // An empty label shares no trigram with any label but is identical to the empty labels.
+                for (int id : emptyLabels)
+                    emit(id, 0, threshold, handler);
+            }
+            else {
+                Arrays.sort(touched, 0, touchedCount);
+                for (int k = 0; k < touchedCount; k++)
+                    emit(touched[k], trigrams.length, threshold, handler);
+            }
+
+            for (int k = 0; k < touchedCount; k++)
+                common[touched[k]] = 0;
+        }
+
+        private void emit(int id, int trigramCount, double threshold, CandidateHandler handler) {
+            double sim = similarity(common[id], trigramCount, trigramCounts[id]);
+            if (sim > threshold)
+                handler.candidate(id, sim);
+        }
+    }
+
+    private static final class Postings {
+        private int[] entries = new int[4];
+
+        private int size;
+
+        private void add(int id, int count) {
+            if (size == entries.length)
+                entries = Arrays.copyOf(entries, size * 2);
+            entries[size++] = id;
+            entries[size++] = count;
+        }
+    }
+}
@@ -23,6 +23,9 @@ package com.github.gumtreediff.matchers.heuristic.gt;
 import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.MatchingIndex;
+import com.github.gumtreediff.matchers.optimal.CostEstimator;
+import com.github.gumtreediff.matchers.optimal.zs.BoundedZsMatcher;
 import com.github.gumtreediff.matchers.optimal.zs.ZsMatcher;
 import com.github.gumtreediff.tree.ITree;
 
@@ -41,16 +44,22 @@ public abstract class AbstractBottomUpMatcher {
         protected final ITree src;
         protected final ITree dst;
         protected final MappingStore mappings;
+        protected final MatchingIndex index;
 
         public Implementation(ITree src, ITree dst, MappingStore mappings) {
+            this(src, dst, mappings, new MatchingIndex(src, dst));
+        }
+
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
             this.src = src;
             this.dst = dst;
             this.mappings = mappings;
+            this.index = index;
         }
 
         protected List<ITree> getDstCandidates(ITree src) {
             List<ITree> seeds = new ArrayList<>();
-            for (ITree c : src.getDescendants()) {
+            for (ITree c : index.src.descendants(src)) {
                 if (mappings.isSrcMapped(c))
                     seeds.add(mappings.getDstForSrc(c));
             }
@@ -72,16 +81,29 @@ public abstract class AbstractBottomUpMatcher {
         }
 
         protected void lastChanceMatch(ITree src, ITree dst) {
-            if (src.getMetrics().size() < AbstractBottomUpMatcher.SIZE_THRESHOLD
-                    || dst.getMetrics().size() < AbstractBottomUpMatcher.SIZE_THRESHOLD) {
-                Matcher m = new ZsMatcher();
-                MappingStore zsMappings = m.match(src, dst, new MappingStore(src, dst));
-                for (Mapping candidate : zsMappings) {
-                    ITree srcCand = candidate.first;
-                    ITree dstCand = candidate.second;
-                    if (mappings.isMappingAllowed(srcCand, dstCand))
-                        mappings.addMapping(srcCand, dstCand);
-                }
+            if ((src.getMetrics().size() < AbstractBottomUpMatcher.SIZE_THRESHOLD
+                    || dst.getMetrics().size() < AbstractBottomUpMatcher.SIZE_THRESHOLD)
+                    && CostEstimator.estimateZs(src, dst).isWithinBudget()) {
+                // the pair itself is mapped first, so that neither of its nodes gets mapped to another one
+                if (mappings.isMappingAllowed(src, dst))
+                    mappings.addMapping(src, dst);
+                // a pair matched because of a dice similarity above SIM_THRESHOLD usually has an edit distance
+                // within the matching bound, the other ones (e.g. the roots, mapped unconditionally) fall back
+                // to the complete matching
+                BoundedZsMatcher bounded = new BoundedZsMatcher(1D - AbstractBottomUpMatcher.SIM_THRESHOLD);
+                if (!bounded.tryMatch(src, dst, mappings))
+                    zsMatch(src, dst);
+            }
+        }
+
+        private void zsMatch(ITree src, ITree dst) {
+            Matcher m = new ZsMatcher();
+            MappingStore zsMappings = m.match(src, dst, new MappingStore(src, dst));
+            for (Mapping candidate : zsMappings) {
+                ITree srcCand = candidate.first;
+                ITree dstCand = candidate.second;
+                if (mappings.isMappingAllowed(srcCand, dstCand))
+                    mappings.addMapping(srcCand, dstCand);
             }
         }
     }
@@ -23,11 +23,18 @@ import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.tree.ITree;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Orders ambiguous mappings by decreasing similarity, then by increasing post-order position of their
+ * source and destination nodes. The similarity and the positions of each ambiguous mapping are computed
+ * once, on the first comparison, and stored in primitive arrays indexed by the initial position of the
+ * mapping in the list of ambiguous mappings. {@link #sort()} sorts this list directly on these keys.
+ */
 public abstract class AbstractMappingComparator implements Comparator<Mapping> {
     protected List<Mapping> ambiguousMappings;
 
@@ -37,6 +44,14 @@ public abstract class AbstractMappingComparator implements Comparator<Mapping> {
 
     protected MappingStore mappings;
 
+    private double[] similarityKeys;
+
+    private int[] srcPositions;
+
+    private int[] dstPositions;
+
+    private final Map<Mapping, Integer> indexes = new HashMap<>();
+
     public AbstractMappingComparator(List<Mapping> ambiguousMappings,
                                      MappingStore mappings, int maxTreeSize) {
         this.maxTreeSize = maxTreeSize;
@@ -44,21 +59,56 @@ public abstract class AbstractMappingComparator implements Comparator<Mapping> {
         this.ambiguousMappings = ambiguousMappings;
     }
 
+    private void computeKeys() {
+        if (similarityKeys != null)
+            return;
+        int size = ambiguousMappings.size();
+        similarityKeys = new double[size];
+        srcPositions = new int[size];
+        dstPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            Mapping m = ambiguousMappings.get(i);
+            // Similarities already given by the subclasses are kept.
+            similarityKeys[i] = similarities.computeIfAbsent(m, (k) -> similarity(k.first, k.second));
+            srcPositions[i] = m.first.getMetrics().position();
+            dstPositions[i] = m.second.getMetrics().position();
+            indexes.put(m, i);
+        }
+    }
+
     @Override
     public int compare(Mapping m1, Mapping m2) {
-        if (similarities.get(m2).compareTo(similarities.get(m1)) != 0) {
-            return Double.compare(similarities.get(m2), similarities.get(m1));
-        }
-        int srcPos = m1.first.getMetrics().position();
-        int dstPos = m2.first.getMetrics().position();
-        if (srcPos != dstPos) {
-            return Integer.compare(srcPos, dstPos);
-        }
-        return Integer.compare(m1.second.getMetrics().position(), m2.second.getMetrics().position());
+        computeKeys();
+        return compare(indexes.get(m1), indexes.get(m2));
     }
 
-    protected abstract double similarity(ITree src, ITree dst);
+    private int compare(int i, int j) {
+        int c = Double.compare(similarityKeys[j], similarityKeys[i]);
+        if (c != 0)
+            return c;
+        if (srcPositions[i] != srcPositions[j])
+            return Integer.compare(srcPositions[i], srcPositions[j]);
+        return Integer.compare(dstPositions[i], dstPositions[j]);
+    }
 
+    /**
+     * Sorts the list of ambiguous mappings given to the constructor in the order of this comparator.
+     */
+    public void sort() {
+        computeKeys();
+        Integer[] order = new Integer[ambiguousMappings.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, this::compare);
+
+        Mapping[] sorted = new Mapping[order.length];
+        for (int i = 0; i < order.length; i++)
+            sorted[i] = ambiguousMappings.get(order[i]);
+        for (int i = 0; i < order.length; i++)
+            ambiguousMappings.set(i, sorted[i]);
+    }
+
+    protected abstract double similarity(ITree src, ITree dst);
     protected double posInParentSimilarity(ITree src, ITree dst) {
         int posSrc = (src.isRoot()) ? 0 : src.getParent().getChildPosition(src);
         int posDst = (dst.isRoot()) ? 0 : dst.getParent().getChildPosition(dst);
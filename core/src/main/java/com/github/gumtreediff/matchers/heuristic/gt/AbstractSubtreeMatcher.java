@@ -26,6 +26,7 @@ import com.github.gumtreediff.matchers.MultiMappingStore;
 import com.github.gumtreediff.tree.ITree;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 
@@ -114,6 +115,32 @@ public abstract class AbstractSubtreeMatcher {
             return Math.max(src.getMetrics().size(), dst.getMetrics().size());
         }
 
+        /**
+         * Adds recursively the mappings of the given sorted list, unless their source or destination
+         * belongs to a subtree already mapped by a previous mapping of the list. The subtrees are ignored
+         * by marking the range of post-order positions they span in bitsets, in constant time per word.
+         */
+        protected void retainBestMapping(List<Mapping> mappingList) {
+            int srcBase = firstPosition(src);
+            int dstBase = firstPosition(dst);
+            BitSet srcIgnored = new BitSet(src.getMetrics().size());
+            BitSet dstIgnored = new BitSet(dst.getMetrics().size());
+            for (int i = 0; i < mappingList.size(); i++) {
+                Mapping mapping = mappingList.get(i);
+                int srcPosition = mapping.first.getMetrics().position() - srcBase;
+                int dstPosition = mapping.second.getMetrics().position() - dstBase;
+                if (!(srcIgnored.get(srcPosition) || dstIgnored.get(dstPosition))) {
+                    mappings.addMappingRecursively(mapping.first, mapping.second);
+                    srcIgnored.set(firstPosition(mapping.first) - srcBase, srcPosition + 1);
+                    dstIgnored.set(firstPosition(mapping.second) - dstBase, dstPosition + 1);
+                }
+            }
+        }
+
+        private static int firstPosition(ITree tree) {
+            return tree.getMetrics().position() - tree.getMetrics().size() + 1;
+        }
+
         protected void retainBestMapping(List<Mapping> mappingList, Set<ITree> srcIgnored, Set<ITree> dstIgnored) {
             while (mappingList.size() > 0) {
                 Mapping mapping = mappingList.remove(0);
@@ -69,17 +69,15 @@ public class CliqueSubtreeMatcher extends AbstractSubtreeMatcher implements Matc
 
             for (Pair<List<ITree>, List<ITree>> clique : ccliques) {
                 List<Mapping> cliqueAsMappings = fromClique(clique);
-                Collections.sort(cliqueAsMappings, new MappingComparator(cliqueAsMappings));
-                Set<ITree> srcIgnored = new HashSet<>();
-                Set<ITree> dstIgnored = new HashSet<>();
-                retainBestMapping(cliqueAsMappings, srcIgnored, dstIgnored);
+                new MappingComparator(cliqueAsMappings).sort();
+                retainBestMapping(cliqueAsMappings);
             }
         }
 
         private List<Mapping> fromClique(Pair<List<ITree>, List<ITree>> clique) {
             List<Mapping> cliqueAsMappings = new ArrayList<Mapping>();
             for (ITree src : clique.first)
-                for (ITree dst : clique.first)
+                for (ITree dst : clique.second)
                     cliqueAsMappings.add(new Mapping(src, dst));
             return cliqueAsMappings;
         }
@@ -117,29 +115,50 @@ public class CliqueSubtreeMatcher extends AbstractSubtreeMatcher implements Matc
 
         }
 
-        private class MappingComparator implements Comparator<Mapping> {
+        /**
+         * Orders the mappings of a clique by decreasing similarity of their parents, then by increasing
+         * distance between their positions in their parents, between their post-order positions, and by
+         * increasing post-order position of their source. The keys of each mapping are computed once and
+         * stored in a primitive array, {@link #KEYS} values per mapping.
+         */
+        private class MappingComparator {
+            private static final int KEYS = 4;
 
-            private Map<Mapping, double[]> simMap = new HashMap<>();
+            private final List<Mapping> cliqueMappings;
+
+            private final double[] keys;
+
+            private Map<ITree, List<ITree>> srcDescendants = new HashMap<>();
+
+            private Map<ITree, Set<ITree>> dstDescendants = new HashMap<>();
+
+            private Map<Mapping, Double> parentSimilarities = new HashMap<>();
 
             public MappingComparator(List<Mapping> mappings) {
-                for (Mapping mapping : mappings)
-                    simMap.put(mapping, sims(mapping.first, mapping.second));
+                this.cliqueMappings = mappings;
+                keys = new double[mappings.size() * KEYS];
+                for (int i = 0; i < mappings.size(); i++)
+                    sims(mappings.get(i).first, mappings.get(i).second, i * KEYS);
             }
 
-            @Override
-            public int compare(Mapping m1, Mapping m2) {
-                double[] sims1 = simMap.get(m1);
-                double[] sims2 = simMap.get(m2);
-                for (int i = 0; i < sims1.length; i++) {
-                    if (sims1[i] != sims2[i])
-                        return -1 * Double.compare(sims2[i], sims2[i]);
-                }
-                return 0;
+            private int compare(int m1, int m2) {
+                int c = Double.compare(keys[m2 * KEYS], keys[m1 * KEYS]);
+                for (int i = 1; c == 0 && i < KEYS; i++)
+                    c = Double.compare(keys[m1 * KEYS + i], keys[m2 * KEYS + i]);
+                return c;
             }
 
-            private Map<ITree, List<ITree>> srcDescendants = new HashMap<>();
-
-            private Map<ITree, Set<ITree>> dstDescendants = new HashMap<>();
+            public void sort() {
+                Integer[] order = new Integer[cliqueMappings.size()];
+                for (int i = 0; i < order.length; i++)
+                    order[i] = i;
+                Arrays.sort(order, this::compare);
+                Mapping[] sorted = new Mapping[order.length];
+                for (int i = 0; i < order.length; i++)
+                    sorted[i] = cliqueMappings.get(order[i]);
+                for (int i = 0; i < order.length; i++)
+                    cliqueMappings.set(i, sorted[i]);
+            }
 
             protected int numberOfCommonDescendants(ITree src, ITree dst) {
                 if (!srcDescendants.containsKey(src))
@@ -157,13 +176,13 @@ public class CliqueSubtreeMatcher extends AbstractSubtreeMatcher implements Matc
                 return common;
             }
 
-            protected double[] sims(ITree src, ITree dst) {
-                double[] sims = new double[4];
-                sims[0] = jaccardSimilarity(src.getParent(), dst.getParent());
-                sims[1] = src.positionInParent() - dst.positionInParent();
-                sims[2] = src.getMetrics().position() - dst.getMetrics().position();
-                sims[3] = src.getMetrics().position();
-                return sims;
+            protected void sims(ITree src, ITree dst, int offset) {
+                keys[offset] = src.isRoot() || dst.isRoot() ? 0D
+                        : parentSimilarities.computeIfAbsent(new Mapping(src.getParent(), dst.getParent()),
+                            (parents) -> jaccardSimilarity(parents.first, parents.second));
+                keys[offset + 1] = Math.abs(src.positionInParent() - dst.positionInParent());
+                keys[offset + 2] = Math.abs(src.getMetrics().position() - dst.getMetrics().position());
+                keys[offset + 3] = src.getMetrics().position();
             }
 
             protected double jaccardSimilarity(ITree src, ITree dst) {
@@ -21,6 +21,7 @@
 package com.github.gumtreediff.matchers.heuristic.gt;
 
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.SimilarityMetrics;
 import com.github.gumtreediff.tree.ITree;
@@ -37,7 +38,13 @@ import java.util.stream.Collectors;
 public class CompleteBottomUpMatcher extends AbstractBottomUpMatcher implements Matcher {
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        CompleteBottomUpMatcher.Implementation impl =  new CompleteBottomUpMatcher.Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        CompleteBottomUpMatcher.Implementation impl =
+                new CompleteBottomUpMatcher.Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -47,8 +54,12 @@ public class CompleteBottomUpMatcher extends AbstractBottomUpMatcher implements
             super(src, dst, mappings);
         }
 
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+            super(src, dst, mappings, index);
+        }
+
         public void match() {
-            for (ITree t : src.postOrder()) {
+            for (ITree t : index.src.postOrder()) {
                 if (t.isRoot()) {
                     mappings.addMapping(t, this.dst);
                     lastChanceMatch(t, this.dst);
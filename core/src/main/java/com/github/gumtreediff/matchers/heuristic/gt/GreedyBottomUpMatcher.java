@@ -21,6 +21,7 @@
 package com.github.gumtreediff.matchers.heuristic.gt;
 
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.SimilarityMetrics;
 import com.github.gumtreediff.tree.ITree;
@@ -36,7 +37,12 @@ import java.util.List;
 public class GreedyBottomUpMatcher extends AbstractBottomUpMatcher implements Matcher {
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        GreedyBottomUpMatcher.Implementation impl =  new GreedyBottomUpMatcher.Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        GreedyBottomUpMatcher.Implementation impl = new GreedyBottomUpMatcher.Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -46,8 +52,12 @@ public class GreedyBottomUpMatcher extends AbstractBottomUpMatcher implements Ma
             super(src, dst, mappings);
         }
 
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+            super(src, dst, mappings, index);
+        }
+
         public void match() {
-            for (ITree t : src.postOrder()) {
+            for (ITree t : index.src.postOrder()) {
                 if (t.isRoot()) {
                     mappings.addMapping(t, this.dst);
                     lastChanceMatch(t, this.dst);
@@ -66,13 +66,10 @@ public class GreedySubtreeMatcher extends AbstractSubtreeMatcher implements Matc
             }
 
             // Rank the mappings by score.
-            Set<ITree> srcIgnored = new HashSet<>();
-            Set<ITree> dstIgnored = new HashSet<>();
-            Collections.sort(ambiguousList,
-                    new SiblingsMappingComparator(ambiguousList, mappings, getMaxTreeSize()));
+            new SiblingsMappingComparator(ambiguousList, mappings, getMaxTreeSize()).sort();
 
             // Select the best ambiguous mappings
-            retainBestMapping(ambiguousList, srcIgnored, dstIgnored);
+            retainBestMapping(ambiguousList);
         }
     }
 }
@@ -22,6 +22,7 @@ package com.github.gumtreediff.matchers.heuristic.gt;
 
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.utils.HungarianAlgorithm;
+import com.github.gumtreediff.utils.JonkerVolgenantAlgorithm;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.MultiMappingStore;
 import com.github.gumtreediff.tree.ITree;
@@ -29,6 +30,12 @@ import com.github.gumtreediff.tree.ITree;
 import java.util.*;
 
 public class HungarianSubtreeMatcher extends AbstractSubtreeMatcher implements Matcher {
+    /**
+     * Size of the largest group of ambiguous mappings solved by the dense Hungarian algorithm.
+     * Larger groups are solved by the shortest augmenting path algorithm of Jonker and Volgenant.
+     */
+    public static int DENSE_SOLVER_MAX_SIZE = Integer.parseInt(System.getProperty("gt.hsm.dsz", "64"));
+
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
         HungarianSubtreeMatcher.Implementation impl =  new HungarianSubtreeMatcher.Implementation(src, dst, mappings);
@@ -61,16 +68,11 @@ public class HungarianSubtreeMatcher extends AbstractSubtreeMatcher implements M
             Collections.sort(ambiguousList, new MultiMappingComparator());
 
             for (MultiMappingStore ambiguous : ambiguousList) {
-                System.out.println("hungarian try.");
                 List<ITree> lstSrcs = new ArrayList<>(ambiguous.allMappedSrcs());
                 List<ITree> lstDsts = new ArrayList<>(ambiguous.allMappedDsts());
-                double[][] matrix = new double[lstSrcs.size()][lstDsts.size()];
-                for (int i = 0; i < lstSrcs.size(); i++)
-                    for (int j = 0; j < lstDsts.size(); j++)
-                        matrix[i][j] = cost(lstSrcs.get(i), lstDsts.get(j));
-
-                HungarianAlgorithm hgAlg = new HungarianAlgorithm(matrix);
-                int[] solutions = hgAlg.execute();
+                int[] solutions = Math.max(lstSrcs.size(), lstDsts.size()) <= DENSE_SOLVER_MAX_SIZE
+                        ? solveDense(lstSrcs, lstDsts)
+                        : solveSparse(lstSrcs, lstDsts);
                 for (int i = 0; i < solutions.length; i++) {
                     int dstIdx = solutions[i];
                     if (dstIdx != -1)
@@ -79,6 +81,47 @@ public class HungarianSubtreeMatcher extends AbstractSubtreeMatcher implements M
             }
         }
 
+        private int[] solveDense(List<ITree> srcs, List<ITree> dsts) {
+            double[][] matrix = new double[srcs.size()][dsts.size()];
+            for (int i = 0; i < srcs.size(); i++)
+                for (int j = 0; j < dsts.size(); j++)
+                    matrix[i][j] = cost(srcs.get(i), dsts.get(j));
+            return new HungarianAlgorithm(matrix).execute();
+        }
+
+        /**
+         * Solves the assignment on candidate lists built directly, without a dense cost matrix. The smaller
+         * side of the group is taken as the workers, so that all of its trees are assigned.
+         */
+        private int[] solveSparse(List<ITree> srcs, List<ITree> dsts) {
+            boolean transposed = srcs.size() > dsts.size();
+            List<ITree> workers = transposed ? dsts : srcs;
+            List<ITree> jobs = transposed ? srcs : dsts;
+            int[] workerStart = new int[workers.size() + 1];
+            int[] candidateJobs = new int[workers.size() * jobs.size()];
+            double[] candidateCosts = new double[candidateJobs.length];
+            for (int i = 0, e = 0; i < workers.size(); i++) {
+                workerStart[i] = e;
+                for (int j = 0; j < jobs.size(); j++, e++) {
+                    candidateJobs[e] = j;
+                    candidateCosts[e] = transposed
+                            ? cost(jobs.get(j), workers.get(i)) : cost(workers.get(i), jobs.get(j));
+                }
+            }
+            workerStart[workers.size()] = candidateJobs.length;
+
+            int[] assignment = new JonkerVolgenantAlgorithm(workers.size(), jobs.size(), workerStart,
+                    candidateJobs, candidateCosts).execute();
+            if (!transposed)
+                return assignment;
+            int[] solutions = new int[srcs.size()];
+            Arrays.fill(solutions, -1);
+            for (int i = 0; i < assignment.length; i++)
+                if (assignment[i] != -1)
+                    solutions[assignment[i]] = i;
+            return solutions;
+        }
+
         private double cost(ITree src, ITree dst) {
             return 111D - sim(src, dst);
         }
@@ -28,16 +28,20 @@ import java.util.*;
 
 public final class ParentsMappingComparator extends AbstractMappingComparator {
 
+    private Map<Mapping, Double> parentSimilarities = new HashMap<>();
+
     public ParentsMappingComparator(List<Mapping> ambiguousMappings, MappingStore mappings,
                                     int maxTreeSize) {
         super(ambiguousMappings, mappings, maxTreeSize);
-        for (Mapping ambiguousMapping: ambiguousMappings)
-            similarities.put(ambiguousMapping, similarity(ambiguousMapping.first, ambiguousMapping.second));
     }
 
     @Override
     protected double similarity(ITree src, ITree dst) {
-        return 100D * parentsJaccardSimilarity(src, dst)
+        // The parents of a node are its parent and the parents of its parent.
+        double parentsSimilarity = src.isRoot() || dst.isRoot() ? parentsJaccardSimilarity(src, dst)
+                : parentSimilarities.computeIfAbsent(new Mapping(src.getParent(), dst.getParent()),
+                    (parents) -> parentsJaccardSimilarity(src, dst));
+        return 100D * parentsSimilarity
                 + 10D * posInParentSimilarity(src, dst) + numberingSimilarity(src , dst);
     }
 
@@ -31,16 +31,19 @@ public final class SiblingsMappingComparator extends AbstractMappingComparator {
 
     private Map<ITree, Set<ITree>> dstDescendants = new HashMap<>();
 
+    private Map<Mapping, Double> parentSimilarities = new HashMap<>();
+
     public SiblingsMappingComparator(List<Mapping> ambiguousMappings, MappingStore mappings,
                                      int maxTreeSize) {
         super(ambiguousMappings, mappings, maxTreeSize);
-        for (Mapping ambiguousMapping: ambiguousMappings)
-            similarities.put(ambiguousMapping, similarity(ambiguousMapping.first, ambiguousMapping.second));
     }
 
     @Override
     protected double similarity(ITree src, ITree dst) {
-        return 100D * siblingsJaccardSimilarity(src.getParent(), dst.getParent())
+        // Ambiguous mappings often share their parents (e.g. several identical methods of a class).
+        double siblingsSimilarity = parentSimilarities.computeIfAbsent(new Mapping(src.getParent(), dst.getParent()),
+                (parents) -> siblingsJaccardSimilarity(parents.first, parents.second));
+        return 100D * siblingsSimilarity
                 +  10D * posInParentSimilarity(src, dst) + numberingSimilarity(src , dst);
     }
 
@@ -21,10 +21,10 @@
 package com.github.gumtreediff.matchers.heuristic.gt;
 
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.SimilarityMetrics;
 import com.github.gumtreediff.tree.ITree;
-import com.github.gumtreediff.tree.TreeUtils;
 import com.github.gumtreediff.tree.Type;
 import com.github.gumtreediff.utils.SequenceAlgorithms;
 
@@ -36,7 +36,12 @@ public class SimpleBottomUpMatcher implements Matcher {
 
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        Implementation impl = new Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        Implementation impl = new Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -45,15 +50,17 @@ public class SimpleBottomUpMatcher implements Matcher {
         private final ITree src;
         private final ITree dst;
         private final MappingStore mappings;
+        private final MatchingIndex index;
 
-        public Implementation(ITree src, ITree dst, MappingStore mappings) {
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
             this.src = src;
             this.dst = dst;
             this.mappings = mappings;
+            this.index = index;
         }
 
         public void match() {
-            for (ITree t : src.postOrder()) {
+            for (ITree t : index.src.postOrder()) {
                 if (t.isRoot()) {
                     mappings.addMapping(t, this.dst);
                     lastChanceMatch(t, this.dst);
@@ -62,10 +69,10 @@ public class SimpleBottomUpMatcher implements Matcher {
                     List<ITree> candidates = getDstCandidates(t);
                     ITree best = null;
                     double max = -1D;
-                    int tSize = t.getDescendants().size();
+                    int tSize = t.getMetrics().size() - 1;
 
                     for (ITree cand : candidates) {
-                        double threshold = 1D / (1D + Math.log(cand.getDescendants().size() + tSize));
+                        double threshold = 1D / (1D + Math.log(cand.getMetrics().size() - 1 + tSize));
                         double sim = SimilarityMetrics.chawatheSimilarity(t, cand, mappings);
                         if (sim > max && sim >= threshold) {
                             max = sim;
@@ -83,7 +90,7 @@ public class SimpleBottomUpMatcher implements Matcher {
 
         protected List<ITree> getDstCandidates(ITree src) {
             List<ITree> seeds = new ArrayList<>();
-            for (ITree c : src.getDescendants()) {
+            for (ITree c : index.src.descendants(src)) {
                 ITree m = mappings.getDstForSrc(c);
                 if (m != null)
                     seeds.add(m);
@@ -123,8 +130,8 @@ public class SimpleBottomUpMatcher implements Matcher {
             for (int[] x : lcs) {
                 ITree t1 = srcChildren.get(x[0]);
                 ITree t2 = dstChildren.get(x[1]);
-                if (mappings.areSrcsUnmapped(TreeUtils.preOrder(t1))
-                        && mappings.areDstsUnmapped(TreeUtils.preOrder(t2)))
+                if (mappings.areSrcsUnmapped(index.src.postOrder(t1))
+                        && mappings.areDstsUnmapped(index.dst.postOrder(t2)))
                     mappings.addMappingRecursively(t1, t2);
             }
         }
@@ -137,8 +144,8 @@ public class SimpleBottomUpMatcher implements Matcher {
             for (int[] x : lcs) {
                 ITree t1 = srcChildren.get(x[0]);
                 ITree t2 = dstChildren.get(x[1]);
-                if (mappings.areSrcsUnmapped(TreeUtils.preOrder(t1))
-                        && mappings.areDstsUnmapped(TreeUtils.preOrder(t2)))
+                if (mappings.areSrcsUnmapped(index.src.postOrder(t1))
+                        && mappings.areDstsUnmapped(index.dst.postOrder(t2)))
                     mappings.addMappingRecursively(t1, t2);
             }
         }
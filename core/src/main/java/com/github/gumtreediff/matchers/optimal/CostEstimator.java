@@ -0,0 +1,97 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers.optimal;
+
+import com.github.gumtreediff.matchers.optimal.rted.RtedMatcher;
+import com.github.gumtreediff.tree.ITree;
+
+/**
+ * Predicts the peak memory and the number of elementary operations of the optimal matchers
+ * from the size and height of the trees, so that they are not run on inputs that would
+ * exhaust the heap. The estimates are upper bounds of the tables allocated by the matchers,
+ * the other costs being negligible in comparison.
+ */
+public final class CostEstimator {
+    private static final long MB = 1024 * 1024;
+
+    /**
+     * Memory that an optimal matcher may allocate, in megabytes. Defaults to a quarter of the maximum heap.
+     */
+    public static long MEMORY_BUDGET =
+            Long.parseLong(System.getProperty("gt.om.mb", Long.toString(Runtime.getRuntime().maxMemory() / 4 / MB)));
+
+    private CostEstimator() {
+    }
+
+    /**
+     * Estimates the cost of {@link com.github.gumtreediff.matchers.optimal.zs.ZsMatcher}: two tables of
+     * doubles of (n + 1) * (m + 1) cells, and at most n * m cells computed per pair of key roots on a path.
+     */
+    public static Estimate estimateZs(ITree src, ITree dst) {
+        long n = src.getMetrics().size();
+        long m = dst.getMetrics().size();
+        long bytes = 2 * table(n + 1, m + 1, 8) + 32 * (n + m);
+        double operations = (double) n * m * (src.getMetrics().height() + 1) * (dst.getMetrics().height() + 1);
+        return new Estimate(bytes, operations);
+    }
+
+    /**
+     * Estimates the cost of {@link com.github.gumtreediff.matchers.optimal.rted.RtedMatcher}: the delta and
+     * strategy tables, and for each of its threads the forest distance table, the single path tables and
+     * the strategy costs of one subtree per depth of the source tree.
+     */
+    public static Estimate estimateRted(ITree src, ITree dst) {
+        long n = src.getMetrics().size();
+        long m = dst.getMetrics().size();
+        long max = Math.max(n, m);
+        long threads = Math.max(1, RtedMatcher.PARALLELISM);
+        long bytes = n * m * (8 + 1 + 1)
+                + threads * ((n + 1) * (m + 1) * 8 + max * max * (8 + 8 + 4) + n * m * 8
+                        + 3 * (src.getMetrics().height() + 2) * m * 8)
+                + 128 * (n + m);
+        double operations = (double) n * m * (Math.min(src.getMetrics().height(), dst.getMetrics().height()) + 1);
+        return new Estimate(bytes, operations);
+    }
+
+    private static long table(long rows, long columns, int cellSize) {
+        // Each row of a two dimensional array is an array with its own header.
+        return rows * (columns * cellSize + 16);
+    }
+
+    public static class Estimate {
+        public final long bytes;
+
+        public final double operations;
+
+        private Estimate(long bytes, double operations) {
+            this.bytes = bytes;
+            this.operations = operations;
+        }
+
+        public boolean isWithinBudget() {
+            return bytes <= MEMORY_BUDGET * MB;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d MB, %.0f operations", bytes / MB, operations);
+        }
+    }
+}
@@ -0,0 +1,1193 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers.optimal.rted;
+
+import com.github.gumtreediff.tree.ITree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * RTED tree edit distance computed with the same strategies, single path functions and edit mapping
+ * than {@link RtedAlgorithm}, on flat primitive tables.
+ * <ul>
+ *     <li>The pairs of subtrees are stored in one dimensional tables indexed by
+ *     <code>v * size2 + w</code>, the strategies being stored as bytes.</li>
+ *     <li>The strategy costs of a subtree of the first tree are kept only until its parent is processed,
+ *     in one row per depth instead of one row per node.</li>
+ *     <li>The tables of the single path functions are allocated once, at the size of the largest
+ *     pair of subtrees, instead of once per call.</li>
+ *     <li>The tree distances of the edit mapping are stored in the delta table.</li>
+ * </ul>
+ * The tables of up to a million pairs of nodes are kept from one pair of trees to the next one, so that
+ * an instance can be reused by a thread to compute several distances. An instance must not be used by
+ * several threads at once.
+ * When given a pool, the strategies of the children of a node and the distances of the relevant
+ * subtrees of a path, which read and write disjoint parts of the tables, are computed by fork/join tasks.
+ */
+public final class FlatRtedAlgorithm {
+    private static final byte LEFT = 0;
+    private static final byte RIGHT = 1;
+    private static final byte HEAVY = 2;
+    private static final byte BOTH = 3;
+    private static final byte REVLEFT = 4;
+    private static final byte REVRIGHT = 5;
+    private static final byte REVHEAVY = 6;
+
+    /**
+     * Number of pairs of nodes of a subproblem above which it is computed by a separate task.
+     */
+    private static final long MIN_CELLS_PER_TASK = 1 << 14;
+
+    /**
+     * Number of tasks waiting in the queue of a thread above which it does not fork new ones, so that
+     * the number of tasks (each of them having its own tables) stays close to the number of threads.
+     */
+    private static final int MAX_SURPLUS_TASKS = 2;
+
+    /**
+     * Number of pairs of nodes above which the tables are released once the trees are matched.
+     */
+    private static final long MAX_RETAINED_CELLS = 1 << 20;
+
+    private final double costDel;
+    private final double costIns;
+    private final double costMatch;
+
+    private final Map<String, Integer> labels = new HashMap<>();
+
+    private final ArrayDeque<Context> contexts = new ArrayDeque<>();
+
+    private ForkJoinPool pool;
+
+    private Tree tree1;
+    private Tree tree2;
+    private int size1;
+    private int size2;
+
+    private double[] delta = new double[0];
+    private byte[] deltaBit = new byte[0];
+    private byte[] strategies = new byte[0];
+
+    public FlatRtedAlgorithm(double delCost, double insCost, double matchCost) {
+        this.costDel = delCost;
+        this.costIns = insCost;
+        this.costMatch = matchCost;
+    }
+
+    /**
+     * Sets the pool running the tasks of the next computations, or null to compute sequentially.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void init(ITree src, ITree dst) {
+        labels.clear();
+        tree1 = new Tree(src, labels);
+        tree2 = new Tree(dst, labels);
+        size1 = tree1.size;
+        size2 = tree2.size;
+
+        int cells = cells(size1, size2);
+        if (delta.length < cells) {
+            delta = new double[cells];
+            deltaBit = new byte[cells];
+            strategies = new byte[cells];
+        }
+
+        // Distances between the leaves and the subtrees of the other tree.
+        int[] sizes1 = tree1.sizes;
+        int[] sizes2 = tree2.sizes;
+        int[] labels1 = tree1.labels;
+        int[] labels2 = tree2.labels;
+        for (int x = 0; x < size1; x++) {
+            int row = x * size2;
+            for (int y = 0; y < size2; y++) {
+                deltaBit[row + y] = (byte) (labels1[x] == labels2[y] ? 0 : 1);
+                if (sizes1[x] == 1 && sizes2[y] == 1)
+                    delta[row + y] = 0;
+                else if (sizes2[y] == 1)
+                    delta[row + y] = sizes1[x] - 1;
+                else if (sizes1[x] == 1)
+                    delta[row + y] = sizes2[y] - 1;
+                else
+                    delta[row + y] = 0;
+            }
+        }
+    }
+
+    /**
+     * Computes the optimal strategy of every pair of subtrees.
+     */
+    public void computeOptimalStrategy() {
+        boolean done = false;
+        try {
+            if (pool == null) {
+                Context ctx = acquire();
+                computeStrategies(ctx, size1 - 1, null, 0);
+                release(ctx);
+            } else
+                pool.invoke(new StrategiesTask(size1 - 1, null));
+            done = true;
+        } finally {
+            // The cost rows of the contexts are no longer zeroed.
+            if (!done)
+                synchronized (contexts) {
+                    contexts.clear();
+                }
+        }
+    }
+
+    public double nonNormalizedTreeDist() {
+        if (pool == null) {
+            Context ctx = acquire();
+            double distance = computeDistance(ctx, size1 - 1, size2 - 1);
+            release(ctx);
+            return distance;
+        } else {
+            DistanceTask task = new DistanceTask(size1 - 1, size2 - 1);
+            pool.invoke(task);
+            return task.distance;
+        }
+    }
+
+    /**
+     * Computes one of the minimal edit mappings, from the distances computed by
+     * {@link #nonNormalizedTreeDist()}.
+     *
+     * @return the postorder numbers (starting with 0) of the mapped nodes of the two trees, by pairs,
+     *     in the order of the mappings of {@link RtedAlgorithm#computeEditMapping()}.
+     */
+    public int[] computeEditMapping() {
+        // The tree distances overwrite the distances without the roots.
+        int cells = cells(size1, size2);
+        for (int i = 0; i < cells; i++)
+            delta[i] += deltaBit[i] * costMatch;
+
+        Context ctx = acquire();
+        double[] forestdist = ctx.forestdist(cells(size1 + 1, size2 + 1));
+        int[] lld1 = tree1.llds;
+        int[] lld2 = tree2.llds;
+
+        int[] mapping = new int[2 * Math.min(size1, size2)];
+        int mapped = 0;
+        int[] treePairs = new int[16];
+        int pairs = 0;
+        treePairs[pairs++] = size1;
+        treePairs[pairs++] = size2;
+        while (pairs > 0) {
+            int lastCol = treePairs[--pairs];
+            int lastRow = treePairs[--pairs];
+            forestDist(forestdist, lastRow, lastCol);
+
+            int firstRow = lld1[lastRow - 1];
+            int firstCol = lld2[lastCol - 1];
+            int row = lastRow;
+            int col = lastCol;
+            while (row > firstRow || col > firstCol) {
+                if (row > firstRow && forestdist[(row - 1) * (size2 + 1) + col] + costDel
+                        == forestdist[row * (size2 + 1) + col])
+                    row--;
+                else if (col > firstCol && forestdist[row * (size2 + 1) + col - 1] + costIns
+                        == forestdist[row * (size2 + 1) + col])
+                    col--;
+                else if (lld1[row - 1] == lld1[lastRow - 1] && lld2[col - 1] == lld2[lastCol - 1]) {
+                    mapping[mapped++] = row - 1;
+                    mapping[mapped++] = col - 1;
+                    row--;
+                    col--;
+                } else {
+                    if (pairs == treePairs.length)
+                        treePairs = Arrays.copyOf(treePairs, 2 * pairs);
+                    treePairs[pairs++] = row;
+                    treePairs[pairs++] = col;
+                    row = lld1[row - 1];
+                    col = lld2[col - 1];
+                }
+            }
+        }
+        release(ctx);
+
+        // The pairs are found from the last one.
+        int[] result = new int[mapped];
+        for (int i = 0; i < mapped; i += 2) {
+            result[mapped - 2 - i] = mapping[i];
+            result[mapped - 1 - i] = mapping[i + 1];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the node of the first tree with the given postorder number (starting with 0).
+     */
+    public ITree getSrcNode(int postorder) {
+        return tree1.nodes[postorder];
+    }
+
+    /**
+     * Returns the node of the second tree with the given postorder number (starting with 0).
+     */
+    public ITree getDstNode(int postorder) {
+        return tree2.nodes[postorder];
+    }
+
+    /**
+     * Forgets the trees, and releases the tables that are too large to be kept until the next pair of trees.
+     */
+    public void clear() {
+        if (delta.length > MAX_RETAINED_CELLS) {
+            delta = new double[0];
+            deltaBit = new byte[0];
+            strategies = new byte[0];
+        }
+        synchronized (contexts) {
+            // the buffers of a single task are kept, the other tasks of a parallel computation allocate their own
+            Context kept = contexts.peek();
+            contexts.clear();
+            if (kept != null && kept.length() <= MAX_RETAINED_CELLS)
+                contexts.push(kept);
+        }
+        labels.clear();
+        tree1 = null;
+        tree2 = null;
+    }
+
+    private void computeStrategies(Context ctx, int root, long[] target, int targetOffset) {
+        int[] sizes1 = tree1.sizes;
+        if (pool != null && countLargeChildren(root) > 1 && canFork()) {
+            // The children add their costs to the row of the root once they are all computed.
+            long[] rootCosts = new long[3 * size2];
+            List<StrategiesTask> tasks = new ArrayList<>();
+            for (int i = tree1.childStarts[root]; i < tree1.childStarts[root + 1]; i++) {
+                int child = tree1.children[i];
+                if (isLarge(sizes1[child], size2)) {
+                    StrategiesTask task = new StrategiesTask(child, new long[3 * size2]);
+                    task.fork();
+                    tasks.add(task);
+                } else
+                    computeStrategies(ctx, child, rootCosts, 0);
+            }
+            for (StrategiesTask task : tasks) {
+                task.join();
+                for (int i = 0; i < rootCosts.length; i++)
+                    rootCosts[i] += task.costs[i];
+            }
+            computeStrategies(ctx, root, rootCosts, 0, target, targetOffset);
+            return;
+        }
+
+        // The costs of a node are accumulated in the row of its depth, which is zeroed once the node is done.
+        int rowSize = 3 * size2;
+        long[] costs = ctx.costs((tree1.heights[root] + 1) * rowSize);
+        int[] depths = tree1.depths;
+        for (int v = root - sizes1[root] + 1; v <= root; v++) {
+            int row = (depths[v] - depths[root]) * rowSize;
+            if (v == root)
+                computeStrategies(ctx, v, costs, row, target, targetOffset);
+            else
+                computeStrategies(ctx, v, costs, row, costs, row - rowSize);
+            Arrays.fill(costs, row, row + rowSize, 0L);
+        }
+    }
+
+    private void computeStrategies(Context ctx, int v, long[] costV, int row, long[] parentCosts, int parentRow) {
+        int[] sizes2 = tree2.sizes;
+        int[] descSums2 = tree2.descSums;
+        int[] krSums2 = tree2.krSums;
+        int[] revKrSums2 = tree2.revKrSums;
+        int[] parents2 = tree2.parents;
+        byte[] types2 = tree2.types;
+        long size = tree1.sizes[v];
+        long descSum = tree1.descSums[v];
+        long krSum = tree1.krSums[v];
+        long revKrSum = tree1.revKrSums[v];
+        byte type = tree1.types[v];
+        int heavy = row + HEAVY * size2;
+        int left = row + LEFT * size2;
+        int right = row + RIGHT * size2;
+
+        long[] costW = ctx.costW(3 * size2);
+        Arrays.fill(costW, 0, 3 * size2, 0L);
+        int strategiesRow = v * size2;
+        for (int w = 0; w < size2; w++) {
+            long min = size * krSums2[w] + costV[left + w];
+            byte strategy = LEFT;
+            long rightMin = size * revKrSums2[w] + costV[right + w];
+            if (rightMin < min) {
+                min = rightMin;
+                strategy = RIGHT;
+            }
+            long heavyMin = size * descSums2[w] + costV[heavy + w];
+            if (heavyMin < min) {
+                min = heavyMin;
+                strategy = HEAVY;
+            }
+            long revLeftMin = sizes2[w] * krSum + costW[LEFT * size2 + w];
+            if (revLeftMin < min) {
+                min = revLeftMin;
+                strategy = REVLEFT;
+            }
+            long revRightMin = sizes2[w] * revKrSum + costW[RIGHT * size2 + w];
+            if (revRightMin < min) {
+                min = revRightMin;
+                strategy = REVRIGHT;
+            }
+            long revHeavyMin = sizes2[w] * descSum + costW[HEAVY * size2 + w];
+            if (revHeavyMin < min) {
+                min = revHeavyMin;
+                strategy = REVHEAVY;
+            }
+            strategies[strategiesRow + w] = strategy;
+
+            if (parentCosts != null) {
+                parentCosts[parentRow + HEAVY * size2 + w] += isOnPath(type, HEAVY) ? costV[heavy + w] : min;
+                parentCosts[parentRow + RIGHT * size2 + w] += isOnPath(type, RIGHT) ? costV[right + w] : min;
+                parentCosts[parentRow + LEFT * size2 + w] += isOnPath(type, LEFT) ? costV[left + w] : min;
+            }
+            int parent2 = parents2[w];
+            if (parent2 != -1) {
+                costW[HEAVY * size2 + parent2] += isOnPath(types2[w], HEAVY) ? costW[HEAVY * size2 + w] : min;
+                costW[LEFT * size2 + parent2] += isOnPath(types2[w], LEFT) ? costW[LEFT * size2 + w] : min;
+                costW[RIGHT * size2 + parent2] += isOnPath(types2[w], RIGHT) ? costW[RIGHT * size2 + w] : min;
+            }
+        }
+    }
+
+    private double computeDistance(Context ctx, int v, int w) {
+        int strategy = strategies[v * size2 + w];
+        if (strategy < BOTH) {
+            computeRelevantSubtrees(ctx, tree1, v, w, strategy, true);
+            ctx.switched = false;
+            return computeSinglePath(ctx, tree1, v, tree2, w, strategy);
+        } else {
+            computeRelevantSubtrees(ctx, tree2, w, v, strategy - REVLEFT, false);
+            ctx.switched = true;
+            return computeSinglePath(ctx, tree2, w, tree1, v, strategy - REVLEFT);
+        }
+    }
+
+    private void computeRelevantSubtrees(Context ctx, Tree tree, int root, int other, int pathType,
+                                         boolean first) {
+        int[] path = tree.paths[pathType];
+        long otherSize = (first ? tree2 : tree1).sizes[other];
+        List<DistanceTask> tasks = null;
+        for (int node = root; path[node] > -1; node = path[node]) {
+            for (int i = tree.childStarts[node]; i < tree.childStarts[node + 1]; i++) {
+                int subtree = tree.children[i];
+                if (subtree == path[node])
+                    continue;
+                int v = first ? subtree : other;
+                int w = first ? other : subtree;
+                if (pool != null && isLarge(tree.sizes[subtree], otherSize) && canFork()) {
+                    if (tasks == null)
+                        tasks = new ArrayList<>();
+                    DistanceTask task = new DistanceTask(v, w);
+                    task.fork();
+                    tasks.add(task);
+                } else
+                    computeDistance(ctx, v, w);
+            }
+        }
+        if (tasks != null)
+            for (DistanceTask task : tasks)
+                task.join();
+    }
+
+    private double computeSinglePath(Context ctx, Tree f, int fNode, Tree g, int gNode, int pathType) {
+        switch (pathType) {
+            case LEFT:
+                return spfL(ctx, f, fNode, g, gNode);
+            case RIGHT:
+                return spfR(ctx, f, fNode, g, gNode);
+            case HEAVY:
+                return spfH(ctx, f, fNode, g, gNode);
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Single path function for the left-most path, based on the Zhang and Shasha algorithm.
+     */
+    private double spfL(Context ctx, Tree f, int fNode, Tree g, int gNode) {
+        int minKr = g.minKrs[gNode];
+        int[] kr = g.kr;
+        if (minKr > -1)
+            for (int j = minKr; kr[j] < gNode; j++)
+                treeEditDist(ctx, f, g, fNode, kr[j]);
+        treeEditDist(ctx, f, g, fNode, gNode);
+        int cell = cell(fNode, gNode, ctx.switched);
+        return delta[cell] + deltaBit[cell] * costMatch;
+    }
+
+    private void treeEditDist(Context ctx, Tree f, Tree g, int i, int j) {
+        int[] llds1 = f.llds;
+        int[] llds2 = g.llds;
+        int ioff = llds1[i] - 1;
+        int joff = llds2[j] - 1;
+        int rows = i - ioff;
+        int cols = j - joff;
+        int stride = cols + 1;
+        double[] forestdist = ctx.forestdist((rows + 1) * stride);
+        forestdist[0] = 0;
+        for (int i1 = 1; i1 <= rows; i1++)
+            forestdist[i1 * stride] = forestdist[(i1 - 1) * stride] + 1;
+        for (int j1 = 1; j1 <= cols; j1++)
+            forestdist[j1] = forestdist[j1 - 1] + 1;
+        int[] labels1 = f.labels;
+        int[] labels2 = g.labels;
+        boolean switched = ctx.switched;
+        for (int i1 = 1; i1 <= rows; i1++) {
+            int a = i1 + ioff;
+            boolean isTree1 = llds1[a] == llds1[i];
+            int current = i1 * stride;
+            int previous = current - stride;
+            for (int j1 = 1; j1 <= cols; j1++) {
+                int b = j1 + joff;
+                int cell = cell(a, b, switched);
+                double da = forestdist[previous + j1] + costDel;
+                double db = forestdist[current + j1 - 1] + costIns;
+                if (isTree1 && llds2[b] == llds2[j]) {
+                    double u = labels1[a] != labels2[b] ? costMatch : 0;
+                    double dc = forestdist[previous + j1 - 1] + u;
+                    double d = (da < db) ? ((da < dc) ? da : dc) : ((db < dc) ? db : dc);
+                    forestdist[current + j1] = d;
+                    delta[cell] = forestdist[previous + j1 - 1];
+                    deltaBit[cell] = (byte) (d - forestdist[previous + j1 - 1] > 0 ? 1 : 0);
+                } else {
+                    double u = deltaBit[cell] * costMatch;
+                    double dc = forestdist[(llds1[a] - 1 - ioff) * stride + llds2[b] - 1 - joff] + delta[cell] + u;
+                    forestdist[current + j1] = (da < db) ? ((da < dc) ? da : dc) : ((db < dc) ? db : dc);
+                }
+            }
+        }
+    }
+
+    /**
+     * Single path function for the right-most path, based on the symmetric version of the Zhang and
+     * Shasha algorithm.
+     */
+    private double spfR(Context ctx, Tree f, int fNode, Tree g, int gNode) {
+        int fRevPostorder = f.size - 1 - f.preorders[fNode];
+        int gRevPostorder = g.size - 1 - g.preorders[gNode];
+        int minRkr = g.minRkrs[gRevPostorder];
+        int[] rkr = g.rkr;
+        if (minRkr > -1)
+            for (int j = minRkr; rkr[j] < gRevPostorder; j++)
+                treeEditDistRev(ctx, f, g, fRevPostorder, rkr[j]);
+        treeEditDistRev(ctx, f, g, fRevPostorder, gRevPostorder);
+        int cell = cell(fNode, gNode, ctx.switched);
+        return delta[cell] + deltaBit[cell] * costMatch;
+    }
+
+    private void treeEditDistRev(Context ctx, Tree f, Tree g, int i, int j) {
+        int[] rlds1 = f.rlds;
+        int[] rlds2 = g.rlds;
+        int ioff = rlds1[i] - 1;
+        int joff = rlds2[j] - 1;
+        int rows = i - ioff;
+        int cols = j - joff;
+        int stride = cols + 1;
+        double[] forestdist = ctx.forestdist((rows + 1) * stride);
+        forestdist[0] = 0;
+        for (int i1 = 1; i1 <= rows; i1++)
+            forestdist[i1 * stride] = forestdist[(i1 - 1) * stride] + 1;
+        for (int j1 = 1; j1 <= cols; j1++)
+            forestdist[j1] = forestdist[j1 - 1] + 1;
+        int[] rpost2post1 = f.rpost2post;
+        int[] rpost2post2 = g.rpost2post;
+        int[] labels1 = f.labels;
+        int[] labels2 = g.labels;
+        boolean switched = ctx.switched;
+        for (int i1 = 1; i1 <= rows; i1++) {
+            int a = i1 + ioff;
+            int aPostorder = rpost2post1[a];
+            boolean isTree1 = rlds1[a] == rlds1[i];
+            int current = i1 * stride;
+            int previous = current - stride;
+            for (int j1 = 1; j1 <= cols; j1++) {
+                int b = j1 + joff;
+                int bPostorder = rpost2post2[b];
+                int cell = cell(aPostorder, bPostorder, switched);
+                double da = forestdist[previous + j1] + costDel;
+                double db = forestdist[current + j1 - 1] + costIns;
+                if (isTree1 && rlds2[b] == rlds2[j]) {
+                    double u = labels1[aPostorder] != labels2[bPostorder] ? costMatch : 0;
+                    double dc = forestdist[previous + j1 - 1] + u;
+                    double d = (da < db) ? ((da < dc) ? da : dc) : ((db < dc) ? db : dc);
+                    forestdist[current + j1] = d;
+                    delta[cell] = forestdist[previous + j1 - 1];
+                    deltaBit[cell] = (byte) (d - forestdist[previous + j1 - 1] > 0 ? 1 : 0);
+                } else {
+                    double u = deltaBit[cell] * costMatch;
+                    double dc = forestdist[(rlds1[a] - 1 - ioff) * stride + rlds2[b] - 1 - joff] + delta[cell] + u;
+                    forestdist[current + j1] = (da < db) ? ((da < dc) ? da : dc) : ((db < dc) ? db : dc);
+                }
+            }
+        }
+    }
+
+    /**
+     * Single path function for the heavy path, based on the Klein and Demaine algorithm.
+     */
+    private double spfH(Context ctx, Tree f, int fNode, Tree g, int gNode) {
+        int gSize = g.sizes[gNode];
+        ctx.prepareHeavyPath(f.sizes[fNode], gSize);
+
+        int[] heavyPath = f.paths[HEAVY];
+        int[] path = ctx.path(f.heights[fNode] + 1);
+        int length = 0;
+        for (int node = fNode; node > -1; node = heavyPath[node])
+            path[length++] = node;
+
+        int gRevPre = g.size - 1 - gNode;
+        int gPre = g.preorders[gNode];
+        int gTreeSize = g.size;
+        int nextVp = -1;
+        for (int it = length - 1; it >= 0; it--) {
+            int vp = path[it];
+            int strategy = f.strategies[vp];
+            if (strategy != BOTH) {
+                if (f.sizes[vp] == 1) {
+                    initLeafPeriod(ctx, g, gSize, gRevPre, gPre, strategy, gTreeSize);
+                    ctx.previousStrategy = strategy;
+                }
+                computePeriod(ctx, f, vp, nextVp, g, gNode, strategy);
+            } else {
+                if (f.sizes[vp] == 1) {
+                    initLeafPeriod(ctx, g, gSize, gRevPre, gPre, LEFT, gTreeSize);
+                    ctx.previousStrategy = LEFT;
+                }
+                computePeriod(ctx, f, vp, nextVp, g, gNode, LEFT);
+                if (f.sizes[vp] == 1) {
+                    initLeafPeriod(ctx, g, gSize, gRevPre, gPre, RIGHT, gTreeSize);
+                    ctx.previousStrategy = RIGHT;
+                }
+                computePeriod(ctx, f, vp, nextVp, g, gNode, RIGHT);
+            }
+            nextVp = vp;
+        }
+        return ctx.t[0];
+    }
+
+    private void initLeafPeriod(Context ctx, Tree g, int gSize, int gRevPre, int gPre, int strategy,
+                                int gTreeSize) {
+        double[] t = ctx.t;
+        for (int i = gSize - 1; i >= 0; i--) {
+            int jOfI = demaineJ(g, i, gSize, gRevPre, gPre, strategy, gTreeSize);
+            for (int j = jOfI; j >= 0; j--)
+                t[i * gSize + j] = (gSize - (i + j)) * costIns;
+        }
+    }
+
+    private void computePeriod(Context ctx, Tree f, int vp, int nextVp, Tree g, int gNode, int strategy) {
+        int fTreeSize = f.size;
+        int gTreeSize = g.size;
+        int gSize = g.sizes[gNode];
+        int gPreorder = g.preorders[gNode];
+        int gRevPreorder = gTreeSize - 1 - gNode;
+        int vpPreorder = f.preorders[vp];
+        int vpRevPreorder = fTreeSize - 1 - vp;
+        int nextVpSize = -1;
+        int k;
+        if (nextVp != -1) {
+            int nextVpPreorder = f.preorders[nextVp];
+            int nextVpRevPreorder = fTreeSize - 1 - nextVp;
+            nextVpSize = f.sizes[nextVp];
+            // Number of deletions from vp to the next vp, on the left or on the right.
+            k = strategy == LEFT ? nextVpPreorder - vpPreorder : nextVpRevPreorder - vpRevPreorder;
+            if (strategy != ctx.previousStrategy)
+                computeIjTable(ctx.ij, g, gPreorder, gRevPreorder, gSize, strategy, gTreeSize);
+        } else {
+            k = 1;
+            computeIjTable(ctx.ij, g, gPreorder, gRevPreorder, gSize, strategy, gTreeSize);
+        }
+
+        double[] tCopy = ctx.t;
+        ctx.t = ctx.tCopy;
+        ctx.tCopy = tCopy;
+        int vpSize = f.sizes[vp];
+        boolean switched = ctx.switched;
+        // When the next vp is the only child of vp, the distance between it and G comes from the previous period.
+        if (vpSize - nextVpSize == 1) {
+            int cell = cell(f.pre2post[vpPreorder], g.pre2post[gPreorder], switched);
+            delta[cell] = gSize == 1 ? vpSize - 1 : ctx.t[gSize];
+        }
+
+        int realStrategy = f.strategies[vp];
+        int previousStrategy = ctx.previousStrategy;
+        double[] t = ctx.t;
+        double[] s = ctx.s;
+        double[] q = ctx.q;
+        int[] ij = ctx.ij;
+        int[] preorders1 = f.preorders;
+        int[] preorders2 = g.preorders;
+        int[] pre2post1 = f.pre2post;
+        int[] pre2post2 = g.pre2post;
+        int[] sizes1 = f.sizes;
+        int[] sizes2 = g.sizes;
+        int[] labels1 = f.labels;
+        int[] labels2 = g.labels;
+
+        for (int i = gSize - 1; i >= 0; i--) {
+            int jOfI = demaineJ(g, i, gSize, gRevPreorder, gPreorder, strategy, gTreeSize);
+            for (int kPrime = 1; kPrime <= k; kPrime++) {
+                int fForestPreorderKPrime = strategy == LEFT
+                        ? vpPreorder + (k - kPrime)
+                        : preorders1[fTreeSize - 1 - (vpRevPreorder + (k - kPrime))];
+                int kBis = kPrime - sizes1[pre2post1[fForestPreorderKPrime]];
+                int sRow = (kPrime - 1) * gSize;
+
+                double deleteFromRight = costIns;
+                double deleteFromLeft = costDel;
+                double match = strategy == LEFT ? kBis + nextVpSize : vpSize - k + kBis;
+                if ((i + jOfI) == (gSize - 1))
+                    deleteFromRight += (vpSize - (k - kPrime));
+                else
+                    deleteFromRight += q[kPrime - 1];
+
+                int fPostorder = pre2post1[fForestPreorderKPrime];
+                int fLabel = labels1[fPostorder];
+                for (int j = jOfI; j >= 0; j--) {
+                    int gijForestPreorder = strategy == LEFT
+                            ? ij[i * gSize + j]
+                            : preorders2[gTreeSize - 1 - ij[i * gSize + j]];
+                    int gijPostorder = pre2post2[gijForestPreorder];
+
+                    // Delete from the left, from the copy of T when the direction changed since the previous period.
+                    if (kPrime == 1) {
+                        if (strategy != previousStrategy) {
+                            int previousI = strategy == LEFT
+                                    ? gijForestPreorder - gPreorder
+                                    : gTreeSize - 1 - g.rpost2post[gTreeSize - 1 - gijForestPreorder] - gRevPreorder;
+                            deleteFromLeft += tCopy[previousI * gSize + i + j - previousI];
+                        } else
+                            deleteFromLeft += tCopy[i * gSize + j];
+                    } else
+                        deleteFromLeft += s[sRow - gSize + j];
+
+                    match += delta[cell(fPostorder, gijPostorder, switched)];
+                    int jPrime = j + sizes2[gijPostorder];
+                    if (fLabel != labels2[gijPostorder])
+                        match += costMatch;
+
+                    if (j != jOfI) {
+                        deleteFromRight += s[sRow + j + 1];
+                        if (kBis == 0) {
+                            if (strategy != previousStrategy) {
+                                int previousI = strategy == LEFT
+                                        ? ij[i * gSize + jPrime] - gPreorder
+                                        : ij[i * gSize + jPrime] - gRevPreorder;
+                                match += tCopy[previousI * gSize + i + jPrime - previousI];
+                            } else
+                                match += tCopy[i * gSize + jPrime];
+                        } else if (kBis > 0)
+                            match += s[(kBis - 1) * gSize + jPrime];
+                        else
+                            match += gSize - (i + jPrime);
+                    }
+
+                    s[sRow + j] = (deleteFromLeft < deleteFromRight)
+                            ? ((deleteFromLeft < match) ? deleteFromLeft : match)
+                            : ((deleteFromRight < match) ? deleteFromRight : match);
+
+                    deleteFromRight = costIns;
+                    deleteFromLeft = costDel;
+                    match = 0;
+                }
+            }
+
+            // The row is copied, as the rows of S are overwritten by the next i.
+            int sourceRow = (realStrategy == BOTH && strategy == LEFT) ? k - 2 : k - 1;
+            System.arraycopy(s, sourceRow * gSize, t, i * gSize, gSize);
+
+            if (i > 0) {
+                int jOfIMinus1 = demaineJ(g, i - 1, gSize, gRevPreorder, gPreorder, strategy, gTreeSize);
+                if (jOfIMinus1 <= jOfI)
+                    for (int x = 0; x < k; x++)
+                        q[x] = s[x * gSize + jOfIMinus1];
+
+                if (i + jOfIMinus1 < gSize) {
+                    int gijOfIMinus1Preorder = strategy == LEFT
+                            ? preorders2[gTreeSize - 1 - (gRevPreorder + (i - 1))]
+                            : gPreorder + (i - 1);
+                    int cell = cell(pre2post1[vpPreorder], pre2post2[gijOfIMinus1Preorder], switched);
+                    // When Fk and Fk-1 differ by a single node, the distance comes from the previous T.
+                    if (k - 1 - 1 < 0) {
+                        if (strategy != previousStrategy) {
+                            int previousI = strategy == LEFT
+                                    ? ij[i * gSize + jOfIMinus1] - gPreorder
+                                    : ij[i * gSize + jOfIMinus1] - gRevPreorder;
+                            delta[cell] = tCopy[previousI * gSize + i + jOfIMinus1 - previousI];
+                        } else
+                            delta[cell] = tCopy[i * gSize + jOfIMinus1];
+                    } else
+                        delta[cell] = s[(k - 2) * gSize + jOfIMinus1];
+                }
+            }
+        }
+        ctx.previousStrategy = strategy;
+    }
+
+    /**
+     * Computes the preorder (or reversed preorder) of the subforests of the given subtree, for each i and j.
+     */
+    private static void computeIjTable(int[] ij, Tree tree, int subtreePreorder, int subtreeRevPreorder,
+                                       int subtreeSize, int strategy, int treeSize) {
+        if (strategy == LEFT) {
+            for (int x = 0; x < subtreeSize; x++)
+                ij[x] = x + subtreePreorder;
+            for (int x = 1; x < subtreeSize; x++) {
+                int change = tree.preorders[treeSize - 1 - (x - 1 + subtreeRevPreorder)];
+                shiftIjRow(ij, x, subtreeSize, change);
+            }
+        } else {
+            for (int x = 0; x < subtreeSize; x++)
+                ij[x] = x + subtreeRevPreorder;
+            for (int x = 1; x < subtreeSize; x++) {
+                int change = treeSize - 1 - tree.rpost2post[treeSize - 1 - (x - 1 + subtreePreorder)];
+                shiftIjRow(ij, x, subtreeSize, change);
+            }
+        }
+    }
+
+    private static void shiftIjRow(int[] ij, int x, int subtreeSize, int change) {
+        int row = x * subtreeSize;
+        int previous = row - subtreeSize;
+        for (int z = 0; z < subtreeSize; z++) {
+            int value = ij[previous + z];
+            ij[row + z] = value >= change ? value + 1 : value;
+        }
+    }
+
+    /**
+     * Returns j(i) of the Demaine algorithm.
+     */
+    private static int demaineJ(Tree tree, int i, int subtreeWeight, int subtreeRevPre, int subtreePre,
+                                int strategy, int treeSize) {
+        return strategy == LEFT
+                ? subtreeWeight - i - tree.sizes[treeSize - 1 - (subtreeRevPre + i)]
+                : subtreeWeight - i - tree.sizes[tree.rpost2post[treeSize - 1 - (subtreePre + i)]];
+    }
+
+    private void forestDist(double[] forestdist, int i, int j) {
+        int[] llds1 = tree1.llds;
+        int[] llds2 = tree2.llds;
+        int firstRow = llds1[i - 1];
+        int firstCol = llds2[j - 1];
+        int stride = size2 + 1;
+        forestdist[firstRow * stride + firstCol] = 0;
+        int[] labels1 = tree1.labels;
+        int[] labels2 = tree2.labels;
+        for (int di = firstRow + 1; di <= i; di++) {
+            int current = di * stride;
+            int previous = current - stride;
+            forestdist[current + firstCol] = forestdist[previous + firstCol] + costDel;
+            boolean isTree1 = llds1[di - 1] == llds1[i - 1];
+            for (int dj = firstCol + 1; dj <= j; dj++) {
+                forestdist[firstRow * stride + dj] = forestdist[firstRow * stride + dj - 1] + costIns;
+                int cell = (di - 1) * size2 + dj - 1;
+                if (isTree1 && llds2[dj - 1] == llds2[j - 1]) {
+                    double costRen = labels1[di - 1] != labels2[dj - 1] ? costMatch : 0;
+                    forestdist[current + dj] = Math.min(Math.min(
+                            forestdist[previous + dj] + costDel,
+                            forestdist[current + dj - 1] + costIns),
+                            forestdist[previous + dj - 1] + costRen);
+                    delta[cell] = forestdist[current + dj];
+                } else {
+                    forestdist[current + dj] = Math.min(Math.min(
+                            forestdist[previous + dj] + costDel,
+                            forestdist[current + dj - 1] + costIns),
+                            forestdist[llds1[di - 1] * stride + llds2[dj - 1]] + delta[cell]);
+                }
+            }
+        }
+    }
+
+    private int countLargeChildren(int v) {
+        int count = 0;
+        for (int i = tree1.childStarts[v]; i < tree1.childStarts[v + 1]; i++)
+            if (isLarge(tree1.sizes[tree1.children[i]], size2))
+                count++;
+        return count;
+    }
+
+    private static boolean isLarge(long size1, long size2) {
+        return size1 * size2 >= MIN_CELLS_PER_TASK;
+    }
+
+    private static boolean canFork() {
+        return ForkJoinTask.getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS;
+    }
+
+    private int cell(int a, int b, boolean switched) {
+        return switched ? b * size2 + a : a * size2 + b;
+    }
+
+    private static int cells(int rows, int columns) {
+        return Math.toIntExact((long) rows * columns);
+    }
+
+    private static boolean isOnPath(byte type, int pathType) {
+        return (type & (1 << pathType)) != 0;
+    }
+
+    private Context acquire() {
+        synchronized (contexts) {
+            Context ctx = contexts.poll();
+            return ctx != null ? ctx : new Context();
+        }
+    }
+
+    private void release(Context ctx) {
+        synchronized (contexts) {
+            contexts.push(ctx);
+        }
+    }
+
+    private class StrategiesTask extends RecursiveAction {
+        private final int root;
+        private final long[] costs;
+
+        public StrategiesTask(int root, long[] costs) {
+            this.root = root;
+            this.costs = costs;
+        }
+
+        @Override
+        protected void compute() {
+            Context ctx = acquire();
+            computeStrategies(ctx, root, costs, 0);
+            release(ctx);
+        }
+    }
+
+    private class DistanceTask extends RecursiveAction {
+        private final int v;
+        private final int w;
+        private double distance;
+
+        public DistanceTask(int v, int w) {
+            this.v = v;
+            this.w = w;
+        }
+
+        @Override
+        protected void compute() {
+            Context ctx = acquire();
+            distance = computeDistance(ctx, v, w);
+            release(ctx);
+        }
+    }
+
+    /**
+     * The buffers of the computations run by a thread, kept by the algorithm from one task to the next one.
+     */
+    private static final class Context {
+        private long[] costs = new long[0];
+        private long[] costW = new long[0];
+        private double[] forestdist = new double[0];
+        private double[] t = new double[0];
+        private double[] tCopy = new double[0];
+        private double[] s = new double[0];
+        private double[] q = new double[0];
+        private int[] ij = new int[0];
+        private int[] path = new int[0];
+        private boolean switched;
+        private int previousStrategy;
+
+        private long[] costs(int length) {
+            // Kept zeroed, as each row is zeroed once its node is done.
+            if (costs.length < length)
+                costs = new long[length];
+            return costs;
+        }
+
+        private long[] costW(int length) {
+            if (costW.length < length)
+                costW = new long[length];
+            return costW;
+        }
+
+        private double[] forestdist(int length) {
+            if (forestdist.length < length)
+                forestdist = new double[length];
+            return forestdist;
+        }
+
+        private int[] path(int length) {
+            if (path.length < length)
+                path = new int[length];
+            return path;
+        }
+
+        private int length() {
+            return Math.max(Math.max(costs.length, forestdist.length), Math.max(t.length, s.length));
+        }
+
+        private void prepareHeavyPath(int fSize, int gSize) {
+            int squared = cells(gSize, gSize);
+            if (t.length < squared) {
+                t = new double[squared];
+                tCopy = new double[squared];
+                ij = new int[squared];
+            } else {
+                Arrays.fill(t, 0, squared, 0D);
+                Arrays.fill(tCopy, 0, squared, 0D);
+            }
+            int rectangle = cells(fSize, gSize);
+            if (s.length < rectangle)
+                s = new double[rectangle];
+            else
+                Arrays.fill(s, 0, rectangle, 0D);
+            if (q.length < fSize)
+                q = new double[fSize];
+            else
+                Arrays.fill(q, 0, fSize, 0D);
+        }
+    }
+
+    /**
+     * The indexes of a tree, by postorder number unless otherwise stated.
+     */
+    private static final class Tree {
+        private final int size;
+        private final ITree[] nodes;
+        private final int[] sizes;
+        private final int[] krSums;
+        private final int[] revKrSums;
+        private final int[] descSums;
+        private final int[] preorders;
+        private final int[] parents;
+        private final int[] labels;
+        private final int[] depths;
+        private final int[] childStarts;
+        private final int[] children;
+        private final int[][] paths = new int[3][];
+        private final byte[] types;
+        private final byte[] strategies;
+        private final int[] pre2post;
+        // Left-most leaf descendants, and minimal key roots (index in kr).
+        private final int[] llds;
+        private final int[] minKrs;
+        private int[] kr;
+        // Right-most leaf descendants and minimal reversed key roots, by reversed postorder number.
+        private final int[] rlds;
+        private final int[] minRkrs;
+        private final int[] rpost2post;
+        private int[] rkr;
+        private final int[] heights;
+
+        private Tree(ITree root, Map<String, Integer> dictionary) {
+            size = root.getMetrics().size();
+            nodes = new ITree[size];
+            sizes = new int[size];
+            krSums = new int[size];
+            revKrSums = new int[size];
+            descSums = new int[size];
+            preorders = new int[size];
+            parents = new int[size];
+            labels = new int[size];
+            depths = new int[size];
+            heights = new int[size];
+            childStarts = new int[size + 1];
+            children = new int[Math.max(0, size - 1)];
+            types = new byte[size];
+            strategies = new byte[size];
+            pre2post = new int[size];
+            llds = new int[size];
+            minKrs = new int[size];
+            rlds = new int[size];
+            minRkrs = new int[size];
+            rpost2post = new int[size];
+            for (int i = 0; i < 3; i++) {
+                paths[i] = new int[size];
+                Arrays.fill(paths[i], -1);
+            }
+            Arrays.fill(parents, -1);
+            number(root, dictionary);
+            index();
+        }
+
+        /**
+         * Numbers the nodes in postorder and preorder, and lists the children of each node.
+         */
+        private void number(ITree root, Map<String, Integer> dictionary) {
+            // Next child, preorder number and start in the completed children of the nodes of the stack, by depth.
+            int[] nextChild = new int[size];
+            int[] stackPreorders = new int[size];
+            int[] stackChildStarts = new int[size];
+            int[] stackChildren = new int[size];
+            int childCount = 0;
+            int preorder = 1;
+            int postorder = 0;
+            int written = 0;
+            ArrayDeque<ITree> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                ITree node = stack.peek();
+                int depth = stack.size() - 1;
+                List<ITree> nodeChildren = node.getChildren();
+                if (nextChild[depth] < nodeChildren.size()) {
+                    ITree child = nodeChildren.get(nextChild[depth]++);
+                    stack.push(child);
+                    nextChild[depth + 1] = 0;
+                    stackPreorders[depth + 1] = preorder++;
+                    stackChildStarts[depth + 1] = childCount;
+                    continue;
+                }
+                stack.pop();
+                nodes[postorder] = node;
+                labels[postorder] = dictionary.computeIfAbsent(node.getLabel(), (label) -> dictionary.size());
+                preorders[postorder] = stackPreorders[depth];
+                pre2post[stackPreorders[depth]] = postorder;
+                rpost2post[size - 1 - stackPreorders[depth]] = postorder;
+                childStarts[postorder] = written;
+                for (int i = stackChildStarts[depth]; i < childCount; i++) {
+                    parents[stackChildren[i]] = postorder;
+                    children[written++] = stackChildren[i];
+                }
+                childCount = stackChildStarts[depth];
+                stackChildren[childCount++] = postorder;
+                postorder++;
+            }
+            childStarts[size] = written;
+        }
+
+        /**
+         * Computes the paths, relevant subtree sums and key roots, as {@link InfoTree} does.
+         */
+        private void index() {
+            int leafCount = 0;
+            int[] ownKrSums = new int[size];
+            int[] ownRevKrSums = new int[size];
+            int[] descSizes = new int[size];
+            for (int v = 0; v < size; v++) {
+                int currentSize = 0;
+                int descSize = 0;
+                int krSizesSum = 0;
+                int revKrSizesSum = 0;
+                int heavyChild = -1;
+                int maxWeight = -1;
+                int first = childStarts[v];
+                int last = childStarts[v + 1] - 1;
+                for (int i = first; i <= last; i++) {
+                    int child = children[i];
+                    if (sizes[child] >= maxWeight) {
+                        maxWeight = sizes[child];
+                        heavyChild = child;
+                    }
+                    currentSize += sizes[child];
+                    descSize += descSizes[child];
+                    if (i > first)
+                        krSizesSum += ownKrSums[child] + sizes[child];
+                    else {
+                        krSizesSum += ownKrSums[child];
+                        types[child] |= 1 << LEFT;
+                    }
+                    if (i < last)
+                        revKrSizesSum += ownRevKrSums[child] + sizes[child];
+                    else {
+                        revKrSizesSum += ownRevKrSums[child];
+                        types[child] |= 1 << RIGHT;
+                    }
+                }
+                sizes[v] = currentSize + 1;
+                descSizes[v] = descSize + sizes[v];
+                descSums[v] = sizes[v] * (sizes[v] + 3) / 2 - descSizes[v];
+                ownKrSums[v] = krSizesSum;
+                ownRevKrSums[v] = revKrSizesSum;
+                krSums[v] = krSizesSum + sizes[v];
+                revKrSums[v] = revKrSizesSum + sizes[v];
+                if (currentSize == 0)
+                    leafCount++;
+                if (v < size - 1)
+                    heights[parents[v]] = Math.max(heights[parents[v]], heights[v] + 1);
+
+                if (heavyChild != -1) {
+                    int leftChild = children[first];
+                    int rightChild = children[last];
+                    paths[HEAVY][v] = heavyChild;
+                    paths[LEFT][v] = leftChild;
+                    paths[RIGHT][v] = rightChild;
+                    types[heavyChild] |= 1 << HEAVY;
+                    if (leftChild < heavyChild && heavyChild < rightChild)
+                        strategies[v] = BOTH;
+                    else if (heavyChild == leftChild)
+                        strategies[v] = RIGHT;
+                    else
+                        strategies[v] = LEFT;
+                } else
+                    strategies[v] = RIGHT;
+            }
+
+            for (int v = size - 1; v >= 0; v--)
+                depths[v] = parents[v] == -1 ? 0 : depths[parents[v]] + 1;
+
+            for (int v = 0; v < size; v++) {
+                llds[v] = paths[LEFT][v] == -1 ? v : llds[paths[LEFT][v]];
+                int reversed = size - 1 - preorders[v];
+                rlds[reversed] = paths[RIGHT][v] == -1 ? reversed : rlds[size - 1 - preorders[paths[RIGHT][v]]];
+            }
+
+            kr = new int[leafCount];
+            rkr = new int[leafCount];
+            boolean[] visited = new boolean[size];
+            boolean[] visitedR = new boolean[size];
+            int k = leafCount - 1;
+            int kR = leafCount - 1;
+            for (int i = size - 1; i >= 0; i--) {
+                if (!visited[llds[i]]) {
+                    kr[k--] = i;
+                    visited[llds[i]] = true;
+                }
+                if (!visitedR[rlds[i]]) {
+                    rkr[kR--] = i;
+                    visitedR[rlds[i]] = true;
+                }
+            }
+
+            Arrays.fill(minKrs, -1);
+            Arrays.fill(minRkrs, -1);
+            for (int i = 0; i < leafCount; i++) {
+                int parent = kr[i];
+                while (parent > -1 && minKrs[parent] == -1) {
+                    minKrs[parent] = i;
+                    parent = parents[parent];
+                }
+                int parentR = rkr[i];
+                while (parentR > -1 && minRkrs[parentR] == -1) {
+                    minRkrs[parentR] = i;
+                    parentR = parents[rpost2post[parentR]];
+                    if (parentR > -1)
+                        parentR = size - 1 - preorders[parentR];
+                }
+            }
+        }
+    }
+}
@@ -22,48 +22,65 @@ package com.github.gumtreediff.matchers.optimal.rted;
 
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.heuristic.gt.GreedyBottomUpMatcher;
+import com.github.gumtreediff.matchers.heuristic.gt.GreedySubtreeMatcher;
+import com.github.gumtreediff.matchers.optimal.CostEstimator;
 import com.github.gumtreediff.tree.ITree;
-import com.github.gumtreediff.tree.TreeUtils;
 
-import java.util.ArrayDeque;
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Optimal tree edit distance matcher. When the tables of RTED would not fit in
+ * {@link CostEstimator#MEMORY_BUDGET}, the trees are matched by the GumTree heuristics instead.
+ * The distances are computed by a {@link FlatRtedAlgorithm}. When {@link #REUSE_TABLES} is set by the
+ * <code>gt.rted.reuse</code> property, it is kept by each thread so that its tables (up to a few tens of
+ * megabytes) are reused by the next diffs. They are computed by {@link #PARALLELISM} threads when it is given
+ * in the <code>gt.rted.par</code> property, each of them allocating its own single path tables.
+ */
 public class RtedMatcher implements Matcher {
 
-    @Override
-    public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        Implementation impl = new Implementation(src, dst, mappings);
-        impl.match();
-        return impl.mappings;
-    }
+    public static int PARALLELISM = Integer.parseInt(System.getProperty("gt.rted.par", "1"));
+
+    public static boolean REUSE_TABLES = Boolean.parseBoolean(System.getProperty("gt.rted.reuse", "false"));
 
-    private static class Implementation {
-        private final ITree src;
-        private final ITree dst;
-        private final MappingStore mappings;
+    private static final ThreadLocal<FlatRtedAlgorithm> ALGORITHMS =
+            ThreadLocal.withInitial(() -> new FlatRtedAlgorithm(1D, 1D, 1D));
 
-        public Implementation(ITree src, ITree dst, MappingStore mappings) {
-            this.src = src;
-            this.dst = dst;
-            this.mappings = mappings;
+    private static ForkJoinPool pool;
+
+    private static synchronized ForkJoinPool getPool() {
+        if (PARALLELISM <= 1)
+            return null;
+        // The previous pool is not shut down, as another thread may be about to use it. Its workers
+        // terminate once idle.
+        if (pool == null || pool.getParallelism() != PARALLELISM)
+            pool = new ForkJoinPool(PARALLELISM);
+        return pool;
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
+        if (!CostEstimator.estimateRted(src, dst).isWithinBudget()) {
+            mappings = new GreedySubtreeMatcher().match(src, dst, mappings);
+            return new GreedyBottomUpMatcher().match(src, dst, mappings);
         }
 
-        public void match() {
-            RtedAlgorithm a = new RtedAlgorithm(1D, 1D, 1D);
+        FlatRtedAlgorithm a = REUSE_TABLES ? ALGORITHMS.get() : new FlatRtedAlgorithm(1D, 1D, 1D);
+        try {
+            a.setPool(getPool());
             a.init(src, dst);
             a.computeOptimalStrategy();
             a.nonNormalizedTreeDist();
-            ArrayDeque<int[]> arrayMappings = a.computeEditMapping();
-            List<ITree> srcs = TreeUtils.postOrder(src);
-            List<ITree> dsts = TreeUtils.postOrder(dst);
-            for (int[] m : arrayMappings) {
-                if (m[0] != 0 && m[1] != 0) {
-                    ITree src = srcs.get(m[0] - 1);
-                    ITree dst = dsts.get(m[1] - 1);
-                    if (mappings.isMappingAllowed(src, dst))
-                        mappings.addMapping(src, dst);
-                }
+            int[] pairs = a.computeEditMapping();
+            for (int i = 0; i < pairs.length; i += 2) {
+                ITree srcNode = a.getSrcNode(pairs[i]);
+                ITree dstNode = a.getDstNode(pairs[i + 1]);
+                if (mappings.isMappingAllowed(srcNode, dstNode))
+                    mappings.addMapping(srcNode, dstNode);
             }
+        } finally {
+            a.clear();
         }
+        return mappings;
     }
 }
@@ -0,0 +1,337 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.matchers.optimal.zs;
+
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Type;
+import org.simmetrics.StringMetric;
+import org.simmetrics.StringMetrics;
+
+import java.util.*;
+
+/**
+ * Zhang and Shasha matcher giving up when the edit distance of the trees exceeds a bound, expressed as a
+ * ratio of the total number of nodes of the trees. The subtrees already mapped to an identical subtree of
+ * the other tree are removed from the trees before computing the distance. The matching gives up before
+ * allocating anything when the numbers of nodes of each type already differ by more than the bound. Otherwise,
+ * the forest distances are only computed, and the tables only hold, the band of the forests whose difference
+ * of size is at most the bound. The mappings found are added to the given mappings when allowed.
+ */
+public class BoundedZsMatcher implements Matcher {
+    private final double maxDistanceRatio;
+
+    public BoundedZsMatcher(double maxDistanceRatio) {
+        this.maxDistanceRatio = maxDistanceRatio;
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
+        tryMatch(src, dst, mappings);
+        return mappings;
+    }
+
+    /**
+     * Adds the mappings of the trees to the given mappings, unless their edit distance exceeds the bound.
+     * @return false if the matching gave up because of the bound.
+     */
+    public boolean tryMatch(ITree src, ITree dst, MappingStore mappings) {
+        Implementation impl = new Implementation(src, dst, mappings, maxDistanceRatio);
+        return impl.match();
+    }
+
+    private static class Implementation {
+        private final MappingStore mappings;
+        private final ITree src;
+        private final ITree dst;
+        private final Set<ITree> srcStripped = new HashSet<>();
+        private final Set<ITree> dstStripped = new HashSet<>();
+        private final double bound;
+        private final StringMetric metric = StringMetrics.qGramsDistance();
+
+        private BoundedTree zsSrc;
+        private BoundedTree zsDst;
+        private int band;
+
+        // the rows of the tables only hold the columns of their band, see firstColumn
+        private int width;
+        private double[][] treeDist;
+        private double[][] forestDist;
+
+        // origin of the forest distance table currently computed
+        private int firstRow;
+        private int firstCol;
+
+        public Implementation(ITree src, ITree dst, MappingStore mappings, double maxDistanceRatio) {
+            this.mappings = mappings;
+            this.src = src;
+            this.dst = dst;
+            strip(src, dst);
+            this.bound = maxDistanceRatio * (src.getMetrics().size() + dst.getMetrics().size());
+        }
+
+        private void strip(ITree t, ITree dst) {
+            for (ITree c : t.getChildren()) {
+                ITree partner = mappings.getDstForSrc(c);
+                if (partner != null && isDescendant(partner, dst) && isIdenticallyMapped(c, partner)) {
+                    srcStripped.add(c);
+                    dstStripped.add(partner);
+                }
+                else
+                    strip(c, dst);
+            }
+        }
+
+        private static boolean isDescendant(ITree t, ITree root) {
+            for (ITree a = t.getParent(); a != null; a = a.getParent())
+                if (a == root)
+                    return true;
+            return false;
+        }
+
+        private boolean isIdenticallyMapped(ITree src, ITree dst) {
+            if (src.getMetrics().size() != dst.getMetrics().size())
+                return false;
+            Iterator<ITree> dsts = dst.preOrder().iterator();
+            for (ITree s : src.preOrder()) {
+                ITree d = dsts.next();
+                if (mappings.getDstForSrc(s) != d || !s.hasSameTypeAndLabel(d)
+                        || s.getChildren().size() != d.getChildren().size())
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Returns a lower bound of the edit distance of the stripped trees: each insertion or deletion
+         * changes the number of nodes of one type, and an update never changes the type of a node.
+         */
+        private int getTypeCountDistance() {
+            Map<Type, int[]> counts = new HashMap<>();
+            countTypes(src, srcStripped, counts, 1);
+            countTypes(dst, dstStripped, counts, -1);
+            int distance = 0;
+            for (int[] count : counts.values())
+                distance += Math.abs(count[0]);
+            return distance;
+        }
+
+        private static void countTypes(ITree t, Set<ITree> stripped, Map<Type, int[]> counts, int delta) {
+            counts.computeIfAbsent(t.getType(), type -> new int[1])[0] += delta;
+            for (ITree c : t.getChildren())
+                if (!stripped.contains(c))
+                    countTypes(c, stripped, counts, delta);
+        }
+
+        private void computeTreeDist() {
+            width = Math.min(2 * band + 1, zsDst.nodeCount + 1);
+            treeDist = new double[zsSrc.nodeCount + 1][width];
+            forestDist = new double[zsSrc.nodeCount + 1][width];
+            for (double[] row : treeDist)
+                Arrays.fill(row, Double.POSITIVE_INFINITY);
+
+            for (int i : zsSrc.kr)
+                for (int j : zsDst.kr)
+                    forestDist(i, j);
+        }
+
+        /**
+         * Returns the first column held by the rows of the given offset, so that the columns within
+         * the band of the offset fit in the width of the rows.
+         */
+        private int firstColumn(int offset) {
+            return Math.max(0, Math.min(offset - band, zsDst.nodeCount + 1 - width));
+        }
+
+        // a mapping within the bound only maps nodes whose post-order numbers differ by at most the bound
+        private double getTreeDist(int row, int col) {
+            if (Math.abs(row - col) <= band)
+                return treeDist[row][col - firstColumn(row)];
+            else
+                return Double.POSITIVE_INFINITY;
+        }
+
+        private double get(int row, int col) {
+            int x = row - firstRow;
+            int y = col - firstCol;
+            if (Math.abs(x - y) <= band)
+                return forestDist[row][y - firstColumn(x)];
+            else
+                return Double.POSITIVE_INFINITY;
+        }
+
+        private void set(int row, int col, double dist) {
+            forestDist[row][col - firstCol - firstColumn(row - firstRow)] = dist;
+        }
+
+        private void forestDist(int i, int j) {
+            firstRow = zsSrc.lld(i) - 1;
+            firstCol = zsDst.lld(j) - 1;
+            set(firstRow, firstCol, 0);
+            for (int dj = firstCol + 1; dj <= Math.min(j, firstCol + band); dj++)
+                set(firstRow, dj, get(firstRow, dj - 1) + 1D);
+
+            for (int di = firstRow + 1; di <= i; di++) {
+                int x = di - firstRow;
+                if (x <= band)
+                    set(di, firstCol, get(di - 1, firstCol) + 1D);
+                // rows of the current and previous forests, and the columns they start at
+                double[] row = forestDist[di];
+                double[] prev = forestDist[di - 1];
+                int offset = firstCol + firstColumn(x);
+                int prevOffset = firstCol + firstColumn(x - 1);
+                int treeOffset = firstColumn(di);
+                int first = Math.max(firstCol + 1, firstCol + x - band);
+                int last = Math.min(j, firstCol + x + band);
+                double ins = (first == firstCol + 1 && x <= band) ? row[firstCol - offset] : Double.POSITIVE_INFINITY;
+                for (int dj = first; dj <= last; dj++) {
+                    double del = dj - firstCol <= x - 1 + band ? prev[dj - prevOffset] : Double.POSITIVE_INFINITY;
+                    double dist;
+                    if (zsSrc.lld(di) == zsSrc.lld(i) && zsDst.lld(dj) == zsDst.lld(j)) {
+                        double upd = prev[dj - 1 - prevOffset] + getUpdateCost(zsSrc.tree(di), zsDst.tree(dj));
+                        dist = Math.min(Math.min(del, ins) + 1D, upd);
+                        if (Math.abs(di - dj) <= band)
+                            treeDist[di][dj - treeOffset] = dist;
+                    }
+                    else if (Math.abs(di - dj) <= band)
+                        dist = Math.min(Math.min(del, ins) + 1D,
+                                get(zsSrc.lld(di) - 1, zsDst.lld(dj) - 1) + treeDist[di][dj - treeOffset]);
+                    else
+                        dist = Math.min(del, ins) + 1D;
+                    row[dj - offset] = dist;
+                    ins = dist;
+                }
+            }
+        }
+
+        public boolean match() {
+            if (getTypeCountDistance() > bound)
+                return false;
+
+            zsSrc = new BoundedTree(src, srcStripped);
+            zsDst = new BoundedTree(dst, dstStripped);
+            band = (int) Math.min(Math.floor(bound), Math.max(zsSrc.nodeCount, zsDst.nodeCount));
+            computeTreeDist();
+            if (getTreeDist(zsSrc.nodeCount, zsDst.nodeCount) > bound)
+                return false;
+
+            boolean rootNodePair = true;
+            ArrayDeque<int[]> treePairs = new ArrayDeque<>();
+            treePairs.addFirst(new int[] {zsSrc.nodeCount, zsDst.nodeCount});
+
+            while (!treePairs.isEmpty()) {
+                int[] treePair = treePairs.removeFirst();
+                int lastRow = treePair[0];
+                int lastCol = treePair[1];
+
+                // the forest distances of the root pair are the last ones computed
+                if (!rootNodePair)
+                    forestDist(lastRow, lastCol);
+                rootNodePair = false;
+
+                int row = lastRow;
+                int col = lastCol;
+                while (row > firstRow || col > firstCol) {
+                    if (row > firstRow && get(row - 1, col) + 1D == get(row, col))
+                        row--;
+                    else if (col > firstCol && get(row, col - 1) + 1D == get(row, col))
+                        col--;
+                    else if (zsSrc.lld(row) - 1 == firstRow && zsDst.lld(col) - 1 == firstCol) {
+                        ITree tSrc = zsSrc.tree(row);
+                        ITree tDst = zsDst.tree(col);
+                        if (mappings.isMappingAllowed(tSrc, tDst))
+                            mappings.addMapping(tSrc, tDst);
+                        row--;
+                        col--;
+                    }
+                    else {
+                        treePairs.addFirst(new int[] {row, col});
+                        row = zsSrc.lld(row) - 1;
+                        col = zsDst.lld(col) - 1;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private double getUpdateCost(ITree n1, ITree n2) {
+            if (n1.getType() == n2.getType())
+                if ("".equals(n1.getLabel()) || "".equals(n2.getLabel()))
+                    return 1D;
+                else
+                    return 1D - metric.compare(n1.getLabel(), n2.getLabel());
+            else
+                return Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Postorder numbering (starting at 1) of a tree without its stripped subtrees.
+     */
+    private static final class BoundedTree {
+        private final ITree[] trees;
+        private final int[] llds;
+        private int nodeCount;
+        private int[] kr;
+
+        private BoundedTree(ITree t, Set<ITree> stripped) {
+            trees = new ITree[t.getMetrics().size() + 1];
+            llds = new int[trees.length];
+            add(t, stripped);
+            setKeyRoots();
+        }
+
+        private int add(ITree t, Set<ITree> stripped) {
+            int lld = 0;
+            for (ITree c : t.getChildren())
+                if (!stripped.contains(c)) {
+                    int childLld = add(c, stripped);
+                    if (lld == 0)
+                        lld = childLld;
+                }
+            nodeCount++;
+            trees[nodeCount] = t;
+            llds[nodeCount] = lld == 0 ? nodeCount : lld;
+            return llds[nodeCount];
+        }
+
+        private void setKeyRoots() {
+            boolean[] visited = new boolean[nodeCount + 1];
+            int[] keyRoots = new int[nodeCount];
+            int k = nodeCount;
+            for (int i = nodeCount; i >= 1; i--) {
+                if (!visited[lld(i)]) {
+                    keyRoots[--k] = i;
+                    visited[lld(i)] = true;
+                }
+            }
+            kr = Arrays.copyOfRange(keyRoots, k, nodeCount);
+        }
+
+        private int lld(int i) {
+            return llds[i];
+        }
+
+        private ITree tree(int i) {
+            return trees[i];
+        }
+    }
+}
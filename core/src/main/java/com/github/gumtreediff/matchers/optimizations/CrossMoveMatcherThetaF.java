@@ -22,14 +22,15 @@ package com.github.gumtreediff.matchers.optimizations;
 
 import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeIndex;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 
 
 /**
@@ -40,7 +41,12 @@ public class CrossMoveMatcherThetaF implements Matcher {
 
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        Implementation impl = new Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        Implementation impl = new Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -49,48 +55,48 @@ public class CrossMoveMatcherThetaF implements Matcher {
         private final ITree src;
         private final ITree dst;
         private final MappingStore mappings;
+        private final MatchingIndex index;
 
-        public Implementation(ITree src, ITree dst, MappingStore mappings) {
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
             this.src = src;
             this.dst = dst;
             this.mappings = mappings;
+            this.index = index;
         }
 
         private class BfsComparator implements Comparator<Mapping> {
 
-            private HashMap<Integer, Integer> positionSrc;
-            private HashMap<Integer, Integer> positionDst;
-
-            private HashMap<Integer, Integer> getHashSet(ITree tree) {
-                HashMap<Integer, Integer> map = new HashMap<>();
-                ArrayList<ITree> list = new ArrayList<>();
-                LinkedList<ITree> workList = new LinkedList<>();
-                workList.add(tree);
-                while (!workList.isEmpty()) {
-                    ITree node = workList.removeFirst();
-                    list.add(node);
-                    workList.addAll(node.getChildren());
-                }
-                for (int i = 0; i < list.size(); i++) {
-                    int position = -1;
-                    map.put(list.get(i).getMetrics().position(), i);
-                }
-                return map;
+            private final int[] positionSrc;
+            private final int[] positionDst;
+
+            // The breadth-first order is the pre-order stably sorted by depth.
+            private int[] getBfsPositions(TreeIndex treeIndex) {
+                List<ITree> nodes = treeIndex.preOrder();
+                int rootDepth = treeIndex.getRoot().getMetrics().depth();
+                int[] starts = new int[nodes.size() + 1];
+                for (ITree node : nodes)
+                    starts[node.getMetrics().depth() - rootDepth + 1]++;
+                for (int depth = 1; depth < starts.length; depth++)
+                    starts[depth] += starts[depth - 1];
+                int[] positions = new int[nodes.size()];
+                for (ITree node : nodes)
+                    positions[treeIndex.id(node)] = starts[node.getMetrics().depth() - rootDepth]++;
+                return positions;
             }
 
-            public BfsComparator(ITree src, ITree dst) {
-                positionSrc = getHashSet(src);
-                positionDst = getHashSet(dst);
+            public BfsComparator() {
+                positionSrc = getBfsPositions(index.src);
+                positionDst = getBfsPositions(index.dst);
             }
 
             @Override
             public int compare(Mapping o1, Mapping o2) {
-                if (o1.first.getMetrics().position() != o2.first.getMetrics().position()) {
-                    return Integer.compare(positionSrc.get(o1.first.getMetrics().position()),
-                            positionSrc.get(o2.first.getMetrics().position()));
+                if (o1.first != o2.first) {
+                    return Integer.compare(positionSrc[index.src.id(o1.first)],
+                            positionSrc[index.src.id(o2.first)]);
                 }
-                return Integer.compare(positionDst.get(o1.second.getMetrics().position()),
-                        positionDst.get(o2.second.getMetrics().position()));
+                return Integer.compare(positionDst[index.dst.id(o1.second)],
+                        positionDst[index.dst.id(o2.second)]);
             }
 
         }
@@ -101,7 +107,7 @@ public class CrossMoveMatcherThetaF implements Matcher {
 
         private void thetaF() {
             LinkedList<Mapping> workList = new LinkedList<>(mappings.asSet());
-            Collections.sort(workList, new BfsComparator(src, dst));
+            Collections.sort(workList, new BfsComparator());
             for (Mapping pair : workList) {
                 ITree parentOld = pair.first.getParent();
                 ITree parentNew = pair.second.getParent();
@@ -19,20 +19,18 @@
  */
 package com.github.gumtreediff.matchers.optimizations;
 
-import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeUtils;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 
 /**
  * This implements the identical subtree optimization Theta A.
- *
+ * Subtrees are grouped by a 64 bits fingerprint of their types and labels, and a subtree
+ * of the source having a unique fingerprint in both trees is mapped to the destination
+ * subtree with the same fingerprint, once verified that they are isomorphic.
  */
 
 public class IdenticalSubtreeMatcherThetaA implements Matcher {
@@ -55,102 +53,119 @@ public class IdenticalSubtreeMatcherThetaA implements Matcher {
             this.mappings = mappings;
         }
 
-        @SuppressWarnings( {"checkstyle:AvoidEscapedUnicodeCharacters"})
-        private String getHash(ITree node, HashMap<ITree, Integer> quickFind,
-                               HashMap<ITree, String> stringMap) {
-            String tmp = node.getType() + node.getLabel();
-            for (ITree child : node.getChildren()) {
-                tmp += getHash(child, quickFind, stringMap);
-            }
-            tmp += "\\u2620";
-            quickFind.put(node, tmp.hashCode());
-            stringMap.put(node, tmp);
-            return tmp;
-        }
-
-        private List<ITree> getNodeStream(ITree root) {
-            LinkedList<ITree> nodes = new LinkedList<>();
-            LinkedList<ITree> workList = new LinkedList<>();
-            workList.add(root);
-            while (!workList.isEmpty()) {
-                ITree node = workList.removeFirst();
-                nodes.add(node);
-                for (int i = node.getChildren().size() - 1; i >= 0; i--) {
-                    workList.addFirst(node.getChildren().get(i));
-                }
-            }
-            return nodes;
-        }
-
         public void match() {
             newUnchangedMatching();
         }
 
         private void newUnchangedMatching() {
-            HashMap<ITree, Integer> quickFind = new HashMap<>();
-            HashMap<ITree, String> stringMap = new HashMap<>();
-            getHash(src, quickFind, stringMap);
-            getHash(dst, quickFind, stringMap);
-            HashMap<String, LinkedList<ITree>> nodeMapOld = new HashMap<>();
-            List<ITree> streamOld = getNodeStream(src);
-            List<ITree> streamNew = getNodeStream(dst);
-            for (ITree node : streamOld) {
-                String hashString = stringMap.get(node);
-                LinkedList<ITree> nodeList = nodeMapOld.get(hashString);
-                if (nodeList == null) {
-                    nodeList = new LinkedList<>();
-                    nodeMapOld.put(hashString, nodeList);
-                }
-                nodeList.add(node);
-            }
-            HashMap<String, LinkedList<ITree>> nodeMapNew = new HashMap<>();
-
-            for (ITree node : streamNew) {
-                String hashString = stringMap.get(node);
-                LinkedList<ITree> nodeList = nodeMapNew.get(hashString);
-                if (nodeList == null) {
-                    nodeList = new LinkedList<>();
-                    nodeMapNew.put(hashString, nodeList);
+            Fingerprints srcPrints = new Fingerprints(src);
+            Fingerprints dstPrints = new Fingerprints(dst);
+            Map<Long, Bucket> buckets = new HashMap<>();
+            for (long print : srcPrints.values)
+                buckets.computeIfAbsent(print, (k) -> new Bucket()).srcCount++;
+            for (int i = 0; i < dstPrints.values.length; i++) {
+                Bucket bucket = buckets.get(dstPrints.values[i]);
+                // Subtrees absent from the source can't be mapped, hence are not indexed.
+                if (bucket != null) {
+                    bucket.dstCount++;
+                    bucket.dst = i;
                 }
-                nodeList.add(node);
             }
 
-            HashSet<Mapping> pairs = new HashSet<>();
-            LinkedList<ITree> workList = new LinkedList<>();
-            workList.add(src);
-
+            List<ITree> pairs = new ArrayList<>();
+            IntStack workList = new IntStack(srcPrints.values.length);
+            workList.push(srcPrints.values.length - 1);
             while (!workList.isEmpty()) {
-                ITree node = workList.removeFirst();
-                LinkedList<ITree> oldList = nodeMapOld.get(stringMap.get(node));
-                assert (oldList != null);
-                LinkedList<ITree> newList = nodeMapNew.get(stringMap.get(node));
-                if (oldList.size() == 1 && newList != null && newList.size() == 1) {
-                    if (node.getChildren().size() > 0) {
-                        assert (stringMap.get(node).equals(stringMap.get(newList.getFirst())));
-                        pairs.add(new Mapping(node, newList.getFirst()));
-                        oldList.remove(node);
-                        newList.removeFirst();
-
+                int i = workList.pop();
+                ITree node = srcPrints.nodes.get(i);
+                Bucket bucket = buckets.get(srcPrints.values[i]);
+                if (bucket.srcCount == 1 && bucket.dstCount == 1
+                        && node.isIsomorphicTo(dstPrints.nodes.get(bucket.dst))) {
+                    if (!node.isLeaf()) {
+                        pairs.add(node);
+                        pairs.add(dstPrints.nodes.get(bucket.dst));
                     }
                 } else {
-                    workList.addAll(node.getChildren());
+                    // Children are stored before their parent in post-order, from the last to the first.
+                    int child = i - 1;
+                    for (int k = 0; k < node.getChildren().size(); k++) {
+                        workList.push(child);
+                        child -= srcPrints.sizes[child];
+                    }
                 }
             }
-            for (Mapping mapping : pairs) {
-                List<ITree> stream1 = getNodeStream(mapping.first);
-                List<ITree> stream2 = getNodeStream(mapping.second);
-                stream1 = new ArrayList<>(stream1);
-                stream2 = new ArrayList<>(stream2);
-                assert (stream1.size() == stream2.size());
-                for (int i = 0; i < stream1.size(); i++) {
-                    ITree oldNode = stream1.get(i);
-                    ITree newNode = stream2.get(i);
-                    assert (oldNode.getType() == newNode.getType());
-                    assert (oldNode.getLabel().equals(newNode.getLabel()));
-                    mappings.addMapping(oldNode, newNode);
+
+            for (int i = 0; i < pairs.size(); i += 2) {
+                Iterator<ITree> dstNodes = pairs.get(i + 1).preOrder().iterator();
+                for (ITree srcNode : pairs.get(i).preOrder())
+                    mappings.addMapping(srcNode, dstNodes.next());
+            }
+        }
+
+        private static class Bucket {
+            int srcCount;
+            int dstCount;
+            int dst;
+        }
+    }
+
+    /**
+     * The nodes of a tree in post-order, with the size and fingerprint of their subtree.
+     * Isomorphic subtrees have the same fingerprint, and non isomorphic subtrees have the
+     * same fingerprint with a probability close to 2^-64.
+     */
+    private static class Fingerprints {
+        final List<ITree> nodes;
+        final int[] sizes;
+        final long[] values;
+
+        Fingerprints(ITree root) {
+            nodes = TreeUtils.postOrder(root);
+            sizes = new int[nodes.size()];
+            values = new long[nodes.size()];
+            for (int i = 0; i < nodes.size(); i++) {
+                ITree node = nodes.get(i);
+                long value = mix(((long) node.getType().hashCode() << 32)
+                        ^ (node.getLabel().hashCode() & 0xFFFFFFFFL) ^ node.getLabel().length());
+                int size = 1;
+                int child = i - 1;
+                for (int k = 0; k < node.getChildren().size(); k++) {
+                    value = mix(value * 0x9E3779B97F4A7C15L + values[child]);
+                    size += sizes[child];
+                    child -= sizes[child];
                 }
+                sizes[i] = size;
+                values[i] = value;
             }
+        }
+
+        private static long mix(long value) {
+            value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+            value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+            return value ^ (value >>> 31);
+        }
+    }
+
+    private static class IntStack {
+        private int[] values;
+        private int size;
+
+        IntStack(int capacity) {
+            values = new int[Math.max(capacity, 1)];
+        }
+
+        void push(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
 
+        boolean isEmpty() {
+            return size == 0;
         }
     }
 }
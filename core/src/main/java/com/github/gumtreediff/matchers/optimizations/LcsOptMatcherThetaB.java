@@ -22,9 +22,9 @@ package com.github.gumtreediff.matchers.optimizations;
 
 import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
-import com.github.gumtreediff.tree.TreeUtils;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -41,7 +41,12 @@ public class LcsOptMatcherThetaB implements Matcher {
 
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        Implementation impl = new Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        Implementation impl = new Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -50,16 +55,18 @@ public class LcsOptMatcherThetaB implements Matcher {
         private final ITree src;
         private final ITree dst;
         private final MappingStore mappings;
+        private final MatchingIndex index;
 
-        public Implementation(ITree src, ITree dst, MappingStore mappings) {
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
             this.src = src;
             this.dst = dst;
             this.mappings = mappings;
+            this.index = index;
         }
 
         private void advancedLcsMatching() {
-            List<ITree> allNodesSrc = TreeUtils.preOrder(src);
-            List<ITree> allNodesDst = TreeUtils.preOrder(dst);
+            List<ITree> allNodesSrc = index.src.preOrder();
+            List<ITree> allNodesDst = index.dst.preOrder();
             Set<ITree> unmatchedNodes1 = new HashSet<>();
             Set<ITree> unmatchedNodes2 = new HashSet<>();
             for (ITree node : allNodesSrc) {
@@ -102,10 +109,8 @@ public class LcsOptMatcherThetaB implements Matcher {
                             continue;
                         }
                         checkedParent.add(parent);
-                        ArrayList<ITree> list1 = new ArrayList<>();
-                        ArrayList<ITree> list2 = new ArrayList<>();
-                        getNodeListInPostOrder(parent, list1);
-                        getNodeListInPostOrder(partner, list2);
+                        List<ITree> list1 = index.src.postOrder(parent);
+                        List<ITree> list2 = index.dst.postOrder(partner);
                         List<Mapping> lcsMatch = lcs(list1, list2, unmatchedNodes1, unmatchedNodes2);
                         for (Mapping match : lcsMatch) {
                             if (!mappings.isSrcMapped(match.first) && !mappings.isDstMapped(match.second)) {
@@ -119,7 +124,7 @@ public class LcsOptMatcherThetaB implements Matcher {
             }
         }
 
-        private void backtrack(ArrayList<ITree> list1, ArrayList<ITree> list2,
+        private void backtrack(List<ITree> list1, List<ITree> list2,
                                LinkedList<Mapping> resultList, int[][] matrix, int ipar, int jpar,
                                Set<ITree> unmatchedNodes1, Set<ITree> unmatchedNodes2) {
             assert (ipar >= 0);
@@ -159,7 +164,7 @@ public class LcsOptMatcherThetaB implements Matcher {
             }
         }
 
-        private List<Mapping> lcs(ArrayList<ITree> list1, ArrayList<ITree> list2,
+        private List<Mapping> lcs(List<ITree> list1, List<ITree> list2,
                                   Set<ITree> unmatchedNodes1, Set<ITree> unmatchedNodes2) {
             int[][] matrix = new int[list1.size() + 1][list2.size() + 1];
             for (int i = 1; i < list1.size() + 1; i++) {
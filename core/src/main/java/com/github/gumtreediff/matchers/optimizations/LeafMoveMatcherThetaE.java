@@ -22,6 +22,7 @@ package com.github.gumtreediff.matchers.optimizations;
 
 import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
 
@@ -39,7 +40,12 @@ public class LeafMoveMatcherThetaE implements Matcher {
 
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        Implementation impl = new Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        Implementation impl = new Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -48,11 +54,13 @@ public class LeafMoveMatcherThetaE implements Matcher {
         private final ITree src;
         private final ITree dst;
         private final MappingStore mappings;
+        private final MatchingIndex index;
 
-        public Implementation(ITree src, ITree dst, MappingStore mappings) {
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
             this.src = src;
             this.dst = dst;
             this.mappings = mappings;
+            this.index = index;
         }
 
         private class MappingComparator implements Comparator<Mapping> {
@@ -80,14 +88,7 @@ public class LeafMoveMatcherThetaE implements Matcher {
             LinkedList<Mapping> workListTmp = null;
             LinkedList<Mapping> changeMap = new LinkedList<>();
 
-            for (Mapping pair : mappings.asSet()) {
-                if (pair.first.isLeaf() && pair.second.isLeaf()) {
-                    if (!pair.first.getLabel().equals(pair.second.getLabel())) {
-                        workList.add(pair);
-                    }
-                }
-
-            }
+            addUpdatedLeafMappings(workList);
             while (!workList.isEmpty()) {
                 Collections.sort(workList, new MappingComparator());
                 workListTmp = new LinkedList<>();
@@ -116,14 +117,7 @@ public class LeafMoveMatcherThetaE implements Matcher {
             workList = new LinkedList<>();
             workListTmp = null;
 
-            for (Mapping pair : mappings.asSet()) {
-                if (pair.first.isLeaf() && pair.second.isLeaf()) {
-                    if (!pair.first.getLabel().equals(pair.second.getLabel())) {
-                        workList.add(pair);
-                    }
-                }
-
-            }
+            addUpdatedLeafMappings(workList);
             while (!workList.isEmpty()) {
                 Collections.sort(workList, new MappingComparator());
                 workListTmp = new LinkedList<>();
@@ -147,6 +141,14 @@ public class LeafMoveMatcherThetaE implements Matcher {
             }
         }
 
+        private void addUpdatedLeafMappings(List<Mapping> workList) {
+            for (ITree leaf : index.src.leaves()) {
+                ITree partner = mappings.getDstForSrc(leaf);
+                if (partner != null && partner.isLeaf() && !leaf.getLabel().equals(partner.getLabel()))
+                    workList.add(new Mapping(leaf, partner));
+            }
+        }
+
         private void reevaluateLeaves(ITree firstParent, ITree secondParent, Mapping pair,
                                       List<Mapping> changeMap) {
 
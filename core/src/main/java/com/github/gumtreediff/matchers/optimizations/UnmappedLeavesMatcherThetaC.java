@@ -21,9 +21,9 @@
 package com.github.gumtreediff.matchers.optimizations;
 
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.MatchingIndex;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.tree.ITree;
-import com.github.gumtreediff.tree.TreeUtils;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -36,7 +36,12 @@ public class UnmappedLeavesMatcherThetaC implements Matcher {
 
     @Override
     public MappingStore match(ITree src, ITree dst, MappingStore mappings) {
-        Implementation impl = new Implementation(src, dst, mappings);
+        return match(src, dst, mappings, new MatchingIndex(src, dst));
+    }
+
+    @Override
+    public MappingStore match(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
+        Implementation impl = new Implementation(src, dst, mappings, index);
         impl.match();
         return impl.mappings;
     }
@@ -45,11 +50,13 @@ public class UnmappedLeavesMatcherThetaC implements Matcher {
         private final ITree src;
         private final ITree dst;
         private final MappingStore mappings;
+        private final MatchingIndex index;
 
-        public Implementation(ITree src, ITree dst, MappingStore mappings) {
+        public Implementation(ITree src, ITree dst, MappingStore mappings, MatchingIndex index) {
             this.src = src;
             this.dst = dst;
             this.mappings = mappings;
+            this.index = index;
         }
 
         public void match() {
@@ -57,8 +64,8 @@ public class UnmappedLeavesMatcherThetaC implements Matcher {
         }
 
         private void thetaC() {
-            List<ITree> allNodesSrc = TreeUtils.preOrder(src);
-            List<ITree> allNodesDst = TreeUtils.preOrder(dst);
+            List<ITree> allNodesSrc = index.src.preOrder();
+            List<ITree> allNodesDst = index.dst.preOrder();
             List<ITree> unmatchedNodes1 = new LinkedList<>();
             List<ITree> unmatchedNodes2 = new LinkedList<>();
 
@@ -0,0 +1,140 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.tree;
+
+import java.util.*;
+
+/**
+ * Index of the nodes of a tree: the nodes in pre-order and in post-order, the leaves, the inner nodes
+ * and the nodes of each type. The lists are unmodifiable, and ordered like the traversals of
+ * {@link TreeUtils} (the leaves, inner nodes and nodes of a type are in post-order). The nodes of
+ * a subtree are located using the post-order position of the metrics, hence the index must not be
+ * used after the tree is modified.
+ */
+public final class TreeIndex {
+    private final ITree root;
+
+    private final List<ITree> preOrder;
+
+    private final ITree[] postOrder;
+
+    private final List<ITree> postOrderList;
+
+    private final int[] preOrderIds;
+
+    private final int[] leavesBefore;
+
+    private final List<ITree> leaves = new ArrayList<>();
+
+    private final List<ITree> innerNodes = new ArrayList<>();
+
+    private final Map<Type, List<ITree>> nodesByType = new HashMap<>();
+
+    private final int offset;
+
+    public TreeIndex(ITree root) {
+        this.root = root;
+        List<ITree> nodes = TreeUtils.preOrder(root);
+        preOrder = Collections.unmodifiableList(nodes);
+        postOrder = new ITree[nodes.size()];
+        preOrderIds = new int[nodes.size()];
+        offset = root.getMetrics().position() - root.getMetrics().size() + 1;
+        for (int i = 0; i < nodes.size(); i++) {
+            int id = id(nodes.get(i));
+            postOrder[id] = nodes.get(i);
+            preOrderIds[id] = i;
+        }
+
+        postOrderList = Collections.unmodifiableList(Arrays.asList(postOrder));
+
+        leavesBefore = new int[postOrder.length + 1];
+        for (int i = 0; i < postOrder.length; i++) {
+            ITree t = postOrder[i];
+            if (t.isLeaf())
+                leaves.add(t);
+            else
+                innerNodes.add(t);
+            nodesByType.computeIfAbsent(t.getType(), (type) -> new ArrayList<>()).add(t);
+            leavesBefore[i + 1] = leavesBefore[i] + (t.isLeaf() ? 1 : 0);
+        }
+    }
+
+    public ITree getRoot() {
+        return root;
+    }
+
+    public int size() {
+        return postOrder.length;
+    }
+
+    /**
+     * Returns the position of the given node in the post-order of the indexed tree.
+     */
+    public int id(ITree t) {
+        return t.getMetrics().position() - offset;
+    }
+
+    public List<ITree> preOrder() {
+        return preOrder;
+    }
+
+    public List<ITree> postOrder() {
+        return postOrderList;
+    }
+
+    /**
+     * Returns the nodes of the subtree rooted at the given node, in post-order.
+     */
+    public List<ITree> postOrder(ITree t) {
+        int id = id(t);
+        return postOrderList.subList(id - t.getMetrics().size() + 1, id + 1);
+    }
+
+    /**
+     * Returns the descendants of the given node, in pre-order, like {@link ITree#getDescendants()}.
+     */
+    public List<ITree> descendants(ITree t) {
+        int preOrderId = preOrderIds[id(t)];
+        return preOrder.subList(preOrderId + 1, preOrderId + t.getMetrics().size());
+    }
+
+    public List<ITree> leaves() {
+        return Collections.unmodifiableList(leaves);
+    }
+
+    public List<ITree> innerNodes() {
+        return Collections.unmodifiableList(innerNodes);
+    }
+
+    /**
+     * Returns the nodes of the given type, in post-order.
+     */
+    public List<ITree> nodesOfType(Type type) {
+        return Collections.unmodifiableList(nodesByType.getOrDefault(type, Collections.emptyList()));
+    }
+
+    /**
+     * Returns the number of leaves of the subtree rooted at the given node.
+     */
+    public int leafCount(ITree t) {
+        int id = id(t);
+        return leavesBefore[id + 1] - leavesBefore[id - t.getMetrics().size() + 1];
+    }
+}
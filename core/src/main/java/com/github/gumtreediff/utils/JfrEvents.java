@@ -0,0 +1,113 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.utils;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events emitted by GumTree. They cost almost nothing when no recording
+ * is running, and allow to attribute the time of a diff to its inputs when one is, for instance
+ * with <code>-XX:StartFlightRecording</code> or <code>jcmd &lt;pid&gt; JFR.start</code>.
+ * All the events belong to the GumTree category and don't record stack traces.
+ */
+public final class JfrEvents {
+    private JfrEvents() {
+    }
+
+    @Name("gumtree.Generation")
+    @Label("Tree Generation")
+    @Description("Parsing of a file into a tree by a tree generator")
+    @Category("GumTree")
+    @StackTrace(false)
+    public static class Generation extends Event {
+        @Label("Generator")
+        public String generator;
+
+        @Label("File")
+        public String file;
+
+        @Label("Tree Size")
+        public int size;
+    }
+
+    @Name("gumtree.Matching")
+    @Label("Matching Phase")
+    @Description("Run of one of the matchers of a composite matcher")
+    @Category("GumTree")
+    @StackTrace(false)
+    public static class Matching extends Event {
+        @Label("Matcher")
+        public String matcher;
+
+        @Label("Phase")
+        public String phase;
+
+        @Label("Source Size")
+        public int srcSize;
+
+        @Label("Destination Size")
+        public int dstSize;
+
+        @Label("Mappings Before")
+        public int mappingsBefore;
+
+        @Label("Mappings After")
+        public int mappingsAfter;
+    }
+
+    @Name("gumtree.ActionComputation")
+    @Label("Edit Script Computation")
+    @Description("Computation of an edit script from mappings")
+    @Category("GumTree")
+    @StackTrace(false)
+    public static class ActionComputation extends Event {
+        @Label("Edit Script Generator")
+        public String generator;
+
+        @Label("Source Size")
+        public int srcSize;
+
+        @Label("Destination Size")
+        public int dstSize;
+
+        @Label("Mappings")
+        public int mappings;
+
+        @Label("Actions")
+        public int actions;
+    }
+
+    @Name("gumtree.Serialization")
+    @Label("Serialization")
+    @Description("Serialization of a tree or of an edit script")
+    @Category("GumTree")
+    @StackTrace(false)
+    public static class Serialization extends Event {
+        @Label("Format")
+        public String format;
+
+        @Label("File")
+        public String file;
+
+        @Label("Nodes")
+        @Description("Size of the serialized tree, or number of serialized actions")
+        public int size;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.utils;
+
+import java.util.Arrays;
+
+/**
+ * A shortest augmenting path solver for the assignment problem, in the manner of Jonker and Volgenant.
+ * It takes the same input and gives the same output than {@link HungarianAlgorithm}, but only visits
+ * the allowed (worker, job) pairs: the cost matrix may be given as sparse candidate lists, in which case
+ * the pairs that are not listed are forbidden.
+ * After a greedy assignment of each worker to its cheapest job and two passes of augmenting row
+ * reduction, the remaining workers are assigned one after the other, each along a shortest path of
+ * reduced costs, the dual potentials keeping the reduced costs non negative. Only the candidate pairs
+ * of the workers visited by a path are read, and no square copy of the cost matrix is made.
+ * When the candidate lists do not allow to assign all the workers (or all the jobs when there are fewer jobs
+ * than workers), the unassigned workers are the ones for which no augmenting path existed when they were
+ * considered, and the assignment is not guaranteed to be of minimal cost.
+ */
+public class JonkerVolgenantAlgorithm {
+    private final int rows;
+    private final int cols;
+    private final boolean transposed;
+    private final int[] rowStart;
+    private final int[] columns;
+    private final double[] costs;
+
+    /**
+     * Construct an instance of the algorithm from a dense cost matrix.
+     *
+     * @param costMatrix
+     *            the cost matrix, where matrix[i][j] holds the cost of
+     *            assigning worker i to job j, for all i, j. The cost matrix
+     *            must not be irregular in the sense that all rows must be the
+     *            same length.
+     */
+    public JonkerVolgenantAlgorithm(double[][] costMatrix) {
+        int workers = costMatrix.length;
+        int jobs = costMatrix[0].length;
+        for (double[] row : costMatrix)
+            if (row.length != jobs)
+                throw new IllegalArgumentException("Irregular cost matrix");
+
+        // Augmenting from the smallest side guarantees that all its elements are assigned.
+        transposed = workers > jobs;
+        rows = transposed ? jobs : workers;
+        cols = transposed ? workers : jobs;
+        rowStart = new int[rows + 1];
+        columns = new int[rows * cols];
+        costs = new double[rows * cols];
+        for (int i = 0, e = 0; i < rows; i++) {
+            rowStart[i] = e;
+            for (int j = 0; j < cols; j++, e++) {
+                columns[e] = j;
+                costs[e] = transposed ? costMatrix[j][i] : costMatrix[i][j];
+            }
+        }
+        rowStart[rows] = rows * cols;
+    }
+
+    /**
+     * Construct an instance of the algorithm from sparse candidate lists: the jobs that can be
+     * assigned to worker i are the candidateJobs[k] for k in [workerStart[i], workerStart[i + 1]),
+     * at the cost candidateCosts[k].
+     */
+    public JonkerVolgenantAlgorithm(int workers, int jobs, int[] workerStart, int[] candidateJobs,
+                                    double[] candidateCosts) {
+        if (workerStart.length != workers + 1 || candidateJobs.length != candidateCosts.length)
+            throw new IllegalArgumentException("Irregular candidate lists");
+        transposed = false;
+        rows = workers;
+        cols = jobs;
+        rowStart = workerStart;
+        columns = candidateJobs;
+        costs = candidateCosts;
+    }
+
+    /**
+     * Execute the algorithm.
+     *
+     * @return the minimum cost matching of workers to jobs based upon the
+     *         provided costs. A matching value of -1 indicates that the
+     *         corresponding worker is unassigned.
+     */
+    public int[] execute() {
+        double[] rowPotentials = new double[rows];
+        double[] colPotentials = new double[cols];
+        int[] colForRow = new int[rows];
+        int[] rowForCol = new int[cols];
+        Arrays.fill(colForRow, -1);
+        Arrays.fill(rowForCol, -1);
+
+        reduceRows(rowPotentials, colForRow, rowForCol);
+        for (int pass = 0; pass < 2; pass++)
+            augmentRows(rowPotentials, colPotentials, colForRow, rowForCol);
+
+        double[] shortest = new double[cols];
+        Arrays.fill(shortest, Double.POSITIVE_INFINITY);
+        int[] path = new int[cols];
+        boolean[] scanned = new boolean[cols];
+        int[] touched = new int[cols];
+        int[] frontier = new int[cols];
+
+        for (int current = 0; current < rows; current++) {
+            if (colForRow[current] != -1)
+                continue;
+            int touchedCount = 0;
+            int frontierSize = 0;
+            int row = current;
+            double minValue = 0;
+            int sink = -1;
+            while (true) {
+                for (int e = rowStart[row]; e < rowStart[row + 1]; e++) {
+                    int col = columns[e];
+                    if (scanned[col])
+                        continue;
+                    double reduced = minValue + costs[e] - rowPotentials[row] - colPotentials[col];
+                    if (reduced < shortest[col]) {
+                        if (shortest[col] == Double.POSITIVE_INFINITY) {
+                            touched[touchedCount++] = col;
+                            frontier[frontierSize++] = col;
+                        }
+                        shortest[col] = reduced;
+                        path[col] = row;
+                    }
+                }
+                if (frontierSize == 0)
+                    break;
+
+                // Closest reached job, preferring an unassigned one to end the path as soon as possible.
+                int best = 0;
+                for (int k = 1; k < frontierSize; k++) {
+                    double d = shortest[frontier[k]];
+                    double bestDistance = shortest[frontier[best]];
+                    if (d < bestDistance || (d == bestDistance && rowForCol[frontier[k]] == -1))
+                        best = k;
+                }
+                int next = frontier[best];
+                frontier[best] = frontier[--frontierSize];
+                minValue = shortest[next];
+                scanned[next] = true;
+                if (rowForCol[next] == -1) {
+                    sink = next;
+                    break;
+                }
+                row = rowForCol[next];
+            }
+
+            if (sink != -1) {
+                rowPotentials[current] += minValue;
+                for (int k = 0; k < touchedCount; k++) {
+                    int col = touched[k];
+                    if (scanned[col] && col != sink) {
+                        rowPotentials[rowForCol[col]] += minValue - shortest[col];
+                        colPotentials[col] -= minValue - shortest[col];
+                    }
+                }
+                for (int col = sink; ; ) {
+                    int pathRow = path[col];
+                    int previous = colForRow[pathRow];
+                    rowForCol[col] = pathRow;
+                    colForRow[pathRow] = col;
+                    if (pathRow == current)
+                        break;
+                    col = previous;
+                }
+            }
+
+            for (int k = 0; k < touchedCount; k++) {
+                shortest[touched[k]] = Double.POSITIVE_INFINITY;
+                scanned[touched[k]] = false;
+            }
+        }
+
+        return transposed ? rowForCol : colForRow;
+    }
+
+    /**
+     * Augmenting row reduction of Jonker and Volgenant: each unassigned worker takes its job of smallest
+     * reduced cost, whose potential is lowered so that the worker would be indifferent between this job and
+     * its second best one. The worker that had this job becomes unassigned, and is processed right away
+     * when the potential has been lowered. The potentials of the jobs only decrease, and the potential
+     * of each assigned worker is its smallest reduced cost, so the reduced costs stay non negative.
+     */
+    private void augmentRows(double[] rowPotentials, double[] colPotentials, int[] colForRow, int[] rowForCol) {
+        // Each step appends at most one worker, and the number of steps is bounded.
+        int maxSteps = 2 * rows;
+        int[] free = new int[rows + maxSteps];
+        int freeCount = 0;
+        for (int row = 0; row < rows; row++)
+            if (colForRow[row] == -1)
+                free[freeCount++] = row;
+
+        int steps = 0;
+        int k = 0;
+        while (k < freeCount && steps++ < maxSteps) {
+            int row = free[k++];
+            if (rowStart[row + 1] - rowStart[row] < 2)
+                continue; // Left to the shortest path phase.
+            int firstCol = -1;
+            int secondCol = -1;
+            double first = Double.POSITIVE_INFINITY;
+            double second = Double.POSITIVE_INFINITY;
+            for (int e = rowStart[row]; e < rowStart[row + 1]; e++) {
+                double reduced = costs[e] - colPotentials[columns[e]];
+                if (reduced < second) {
+                    if (reduced < first) {
+                        second = first;
+                        secondCol = firstCol;
+                        first = reduced;
+                        firstCol = columns[e];
+                    }
+                    else {
+                        second = reduced;
+                        secondCol = columns[e];
+                    }
+                }
+            }
+
+            int previousRow = rowForCol[firstCol];
+            if (first < second)
+                colPotentials[firstCol] -= second - first;
+            else if (previousRow != -1) {
+                firstCol = secondCol;
+                previousRow = rowForCol[firstCol];
+            }
+            rowPotentials[row] = second;
+            colForRow[row] = firstCol;
+            rowForCol[firstCol] = row;
+            if (previousRow != -1) {
+                colForRow[previousRow] = -1;
+                if (first < second)
+                    free[--k] = previousRow;
+                else
+                    free[freeCount++] = previousRow;
+            }
+        }
+    }
+
+    /**
+     * Initializes the potential of each worker to its minimal cost and assigns it to the job reaching
+     * this minimum, when this job is still unassigned. The reduced costs are then non negative and
+     * null on the assigned pairs, and the shortest path phase only has to assign the remaining workers.
+     * The potentials of the jobs stay null, which is required for the jobs that will not be assigned.
+     */
+    private void reduceRows(double[] rowPotentials, int[] colForRow, int[] rowForCol) {
+        for (int row = 0; row < rows; row++) {
+            int minCol = -1;
+            double min = Double.POSITIVE_INFINITY;
+            for (int e = rowStart[row]; e < rowStart[row + 1]; e++) {
+                if (costs[e] < min || (costs[e] == min && rowForCol[minCol] != -1 && rowForCol[columns[e]] == -1)) {
+                    min = costs[e];
+                    minCol = columns[e];
+                }
+            }
+            if (minCol != -1) {
+                rowPotentials[row] = min;
+                if (rowForCol[minCol] == -1) {
+                    colForRow[row] = minCol;
+                    rowForCol[minCol] = row;
+                }
+            }
+        }
+    }
+}
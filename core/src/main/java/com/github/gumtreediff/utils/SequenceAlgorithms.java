@@ -20,13 +20,24 @@
 
 package com.github.gumtreediff.utils;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 
 import com.github.gumtreediff.tree.ITree;
 
+/**
+ * Sequence algorithms. The longest common subsequences are computed with a table of lengths
+ * when it has at most {@link #MAX_TABLE_SIZE} cells, and in linear space with Hirschberg's
+ * algorithm otherwise. The rows of lengths needed by Hirschberg's algorithm are computed
+ * with a bit-parallel algorithm when the sequences share few distinct elements.
+ */
 public final class SequenceAlgorithms {
+    /**
+     * Maximum number of cells of the table of lengths of a longest common subsequence.
+     */
+    public static long MAX_TABLE_SIZE = 1 << 22;
+
     private SequenceAlgorithms() {}
 
     /**
@@ -36,15 +47,16 @@ public final class SequenceAlgorithms {
      *     to match of index in sequence 1 to index in sequence 2.
      */
     public static List<int[]> longestCommonSubsequence(String s0, String s1) {
-        int[][] lengths = new int[s0.length() + 1][s1.length() + 1];
-        for (int i = 0; i < s0.length(); i++)
-            for (int j = 0; j < s1.length(); j++)
-                if (s0.charAt(i) == (s1.charAt(j)))
-                    lengths[i + 1][j + 1] = lengths[i][j] + 1;
-                else
-                    lengths[i + 1][j + 1] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
-
-        return extractIndexes(lengths, s0.length(), s1.length());
+        return longestCommonSubsequence(s0.chars().toArray(), s1.chars().toArray());
+    }
+
+    /**
+     * Returns the length of the longest common subsequence between two strings, computed in O(m) space,
+     * with a bit-parallel algorithm in O(n * m / 64) time when s1 has few distinct characters.
+     */
+    public static int longestCommonSubsequenceLength(String s0, String s1) {
+        int[] b = s1.chars().toArray();
+        return lengthsRow(s0.chars().toArray(), b)[b.length];
     }
 
     /**
@@ -109,15 +121,8 @@ public final class SequenceAlgorithms {
      *     to match of index in sequence 1 to index in sequence 2.
      */
     public static List<int[]> longestCommonSubsequenceWithTypeAndLabel(List<ITree> s0, List<ITree> s1) {
-        int[][] lengths = new int[s0.size() + 1][s1.size() + 1];
-        for (int i = 0; i < s0.size(); i++)
-            for (int j = 0; j < s1.size(); j++)
-                if (s0.get(i).hasSameTypeAndLabel(s1.get(j)))
-                    lengths[i + 1][j + 1] = lengths[i][j] + 1;
-                else
-                    lengths[i + 1][j + 1] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
-
-        return extractIndexes(lengths, s0.size(), s1.size());
+        int[][] classes = classes(s0, s1, (t) -> Objects.hash(t.getType(), t.getLabel()), ITree::hasSameTypeAndLabel);
+        return longestCommonSubsequence(classes[0], classes[1]);
     }
 
     /**
@@ -129,15 +134,8 @@ public final class SequenceAlgorithms {
      *     to match of index in sequence 1 to index in sequence 2.
      */
     public static List<int[]> longestCommonSubsequenceWithIsomorphism(List<ITree> s0, List<ITree> s1) {
-        int[][] lengths = new int[s0.size() + 1][s1.size() + 1];
-        for (int i = 0; i < s0.size(); i++)
-            for (int j = 0; j < s1.size(); j++)
-                if (s0.get(i).isIsomorphicTo(s1.get(j)))
-                    lengths[i + 1][j + 1] = lengths[i][j] + 1;
-                else
-                    lengths[i + 1][j + 1] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
-
-        return extractIndexes(lengths, s0.size(), s1.size());
+        int[][] classes = classes(s0, s1, (t) -> t.getMetrics().hash(), ITree::isIsomorphicTo);
+        return longestCommonSubsequence(classes[0], classes[1]);
     }
 
     /**
@@ -149,15 +147,161 @@ public final class SequenceAlgorithms {
      *     to match of index in sequence 1 to index in sequence 2.
      */
     public static List<int[]> longestCommonSubsequenceWithIsostructure(List<ITree> s0, List<ITree> s1) {
-        int[][] lengths = new int[s0.size() + 1][s1.size() + 1];
-        for (int i = 0; i < s0.size(); i++)
-            for (int j = 0; j < s1.size(); j++)
-                if (s0.get(i).isIsoStructuralTo(s1.get(j)))
-                    lengths[i + 1][j + 1] = lengths[i][j] + 1;
-                else
-                    lengths[i + 1][j + 1] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
-
-        return extractIndexes(lengths, s0.size(), s1.size());
+        int[][] classes = classes(s0, s1, (t) -> t.getMetrics().structureHash(), ITree::isIsoStructuralTo);
+        return longestCommonSubsequence(classes[0], classes[1]);
+    }
+
+    /**
+     * Replaces the nodes of both lists by the index of their equivalence class.
+     */
+    private static int[][] classes(List<ITree> s0, List<ITree> s1, ToIntFunction<ITree> hash,
+                                   BiPredicate<ITree, ITree> equivalent) {
+        List<ITree> representatives = new ArrayList<>();
+        Map<Integer, List<Integer>> buckets = new HashMap<>();
+        int[][] classes = new int[2][];
+        List<List<ITree>> sequences = Arrays.asList(s0, s1);
+        for (int k = 0; k < 2; k++) {
+            List<ITree> sequence = sequences.get(k);
+            classes[k] = new int[sequence.size()];
+            for (int i = 0; i < sequence.size(); i++) {
+                ITree t = sequence.get(i);
+                List<Integer> bucket = buckets.computeIfAbsent(hash.applyAsInt(t), (h) -> new ArrayList<>(1));
+                int id = -1;
+                for (int candidate : bucket) {
+                    if (equivalent.test(representatives.get(candidate), t)) {
+                        id = candidate;
+                        break;
+                    }
+                }
+                if (id == -1) {
+                    id = representatives.size();
+                    representatives.add(t);
+                    bucket.add(id);
+                }
+                classes[k][i] = id;
+            }
+        }
+        return classes;
+    }
+
+    private static List<int[]> longestCommonSubsequence(int[] a, int[] b) {
+        List<int[]> indexes = new ArrayList<>();
+        hirschberg(a, 0, a.length, b, 0, b.length, indexes);
+        return indexes;
+    }
+
+    private static void hirschberg(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo, List<int[]> indexes) {
+        int m = aTo - aFrom;
+        int n = bTo - bFrom;
+        if (m == 0 || n == 0)
+            return;
+
+        if ((long) (m + 1) * (n + 1) <= MAX_TABLE_SIZE) {
+            int[][] lengths = new int[m + 1][n + 1];
+            for (int i = 0; i < m; i++)
+                for (int j = 0; j < n; j++)
+                    if (a[aFrom + i] == b[bFrom + j])
+                        lengths[i + 1][j + 1] = lengths[i][j] + 1;
+                    else
+                        lengths[i + 1][j + 1] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+
+            for (int[] index : extractIndexes(lengths, m, n))
+                indexes.add(new int[] {aFrom + index[0], bFrom + index[1]});
+            return;
+        }
+
+        if (m == 1) {
+            for (int j = bFrom; j < bTo; j++) {
+                if (a[aFrom] == b[j]) {
+                    indexes.add(new int[] {aFrom, j});
+                    return;
+                }
+            }
+            return;
+        }
+
+        // The middle row is crossed by the longest common subsequence at the column where the lengths
+        // of the upper half (computed forward) and of the lower half (computed backward) sum the most.
+        int middle = aFrom + m / 2;
+        int[] upper = lengthsRow(Arrays.copyOfRange(a, aFrom, middle), Arrays.copyOfRange(b, bFrom, bTo));
+        int[] lower = lengthsRow(reverse(a, middle, aTo), reverse(b, bFrom, bTo));
+        int split = 0;
+        int best = -1;
+        for (int j = 0; j <= n; j++) {
+            if (upper[j] + lower[n - j] > best) {
+                best = upper[j] + lower[n - j];
+                split = j;
+            }
+        }
+        hirschberg(a, aFrom, middle, b, bFrom, bFrom + split, indexes);
+        hirschberg(a, middle, aTo, b, bFrom + split, bTo, indexes);
+    }
+
+    /**
+     * Returns the lengths of the longest common subsequences between a and the prefixes of b,
+     * indexed by the length of the prefix.
+     */
+    private static int[] lengthsRow(int[] a, int[] b) {
+        int distinct = distinctCount(b);
+        // The bit-parallel version needs one bit mask of b per distinct element.
+        if ((long) distinct * ((b.length + 63) >>> 6) <= 2L * b.length + 64)
+            return bitParallelRow(a, b, distinct);
+
+        int[] previous = new int[b.length + 1];
+        int[] current = new int[b.length + 1];
+        for (int x : a) {
+            for (int j = 0; j < b.length; j++)
+                current[j + 1] = x == b[j] ? previous[j] + 1 : Math.max(current[j], previous[j + 1]);
+            int[] tmp = previous;
+            previous = current;
+            current = tmp;
+        }
+        return previous;
+    }
+
+    /**
+     * Computes the row of lengths with the bit-vector algorithm of Hyyrö. A zero bit at position j
+     * means that the length increases between the prefixes of b of lengths j and j + 1.
+     */
+    private static int[] bitParallelRow(int[] a, int[] b, int distinct) {
+        int words = (b.length + 63) >>> 6;
+        Map<Integer, long[]> masks = new HashMap<>(distinct * 2);
+        for (int j = 0; j < b.length; j++)
+            masks.computeIfAbsent(b[j], (x) -> new long[words])[j >>> 6] |= 1L << j;
+
+        long[] v = new long[words];
+        Arrays.fill(v, -1L);
+        for (int x : a) {
+            long[] mask = masks.get(x);
+            if (mask == null)
+                continue;
+            long carry = 0;
+            for (int w = 0; w < words; w++) {
+                long u = v[w] & mask[w];
+                long sum = v[w] + u + carry;
+                carry = Long.compareUnsigned(sum, v[w]) < 0 || (carry == 1 && sum == v[w]) ? 1 : 0;
+                v[w] = sum | (v[w] & ~mask[w]);
+            }
+        }
+
+        int[] row = new int[b.length + 1];
+        for (int j = 0; j < b.length; j++)
+            row[j + 1] = row[j] + (int) (~v[j >>> 6] >>> j & 1L);
+        return row;
+    }
+
+    private static int distinctCount(int[] values) {
+        Set<Integer> distinct = new HashSet<>();
+        for (int value : values)
+            distinct.add(value);
+        return distinct.size();
+    }
+
+    private static int[] reverse(int[] values, int from, int to) {
+        int[] reversed = new int[to - from];
+        for (int i = 0; i < reversed.length; i++)
+            reversed[i] = values[to - 1 - i];
+        return reversed;
     }
 
     private static List<int[]> extractIndexes(int[][] lengths, int length1, int length2) {
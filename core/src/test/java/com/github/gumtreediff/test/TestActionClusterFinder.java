@@ -0,0 +1,73 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.actions.ActionClusterFinder;
+import com.github.gumtreediff.actions.ChawatheScriptGenerator;
+import com.github.gumtreediff.actions.EditScript;
+import com.github.gumtreediff.actions.model.Action;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.utils.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestActionClusterFinder {
+    @Test
+    public void testWithActionExample() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        ITree src = trees.first.getRoot();
+        ITree dst = trees.second.getRoot();
+        MappingStore ms = new MappingStore(src, dst);
+        ms.addMapping(src, dst);
+        ms.addMapping(src.getChild(1), dst.getChild(0));
+        ms.addMapping(src.getChild("1.0"), dst.getChild("0.0"));
+        ms.addMapping(src.getChild("1.1"), dst.getChild("0.1"));
+        ms.addMapping(src.getChild(0), dst.getChild(1).getChild(0));
+        ms.addMapping(src.getChild("0.0"), dst.getChild("1.0.0"));
+        ms.addMapping(src.getChild(4), dst.getChild(3));
+        ms.addMapping(src.getChild("4.0"), dst.getChild("3.0.0.0"));
+        EditScript actions = new ChawatheScriptGenerator().computeActions(ms);
+        assertEquals(11, actions.size());
+
+        ActionClusterFinder finder = new ActionClusterFinder(trees.first, trees.second, actions);
+        List<Set<Action>> clusters = finder.getClusters();
+        assertEquals(8, clusters.size());
+        assertThat(clusters.get(2), contains(actions.get(1), actions.get(3)));
+        assertThat(clusters.get(4), contains(actions.get(4), actions.get(6)));
+        assertThat(clusters.get(6), contains(actions.get(8), actions.get(9)));
+        assertEquals(actions.get(1).toString(), finder.getClusterLabel(clusters.get(2)));
+        assertEquals(actions.get(4).toString(), finder.getClusterLabel(clusters.get(4)));
+        assertEquals(actions.get(9).toString(), finder.getClusterLabel(clusters.get(6)));
+        assertEquals("UPDATE from f to y", finder.getClusterLabel(clusters.get(3)));
+
+        List<Set<Action>> streamed = new ArrayList<>();
+        finder.forEachCluster(streamed::add);
+        assertEquals(clusters, streamed);
+    }
+}
@@ -20,14 +20,17 @@
 package com.github.gumtreediff.test;
 
 import com.github.gumtreediff.utils.HungarianAlgorithm;
+import com.github.gumtreediff.utils.JonkerVolgenantAlgorithm;
 import com.github.gumtreediff.utils.SequenceAlgorithms;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class TestAlgorithms {
 
@@ -61,4 +64,83 @@ public class TestAlgorithms {
         assertThat(result[1], is(1));
         assertThat(result[2], is(2));
     }
+
+    @Test
+    public void testJonkerVolgenantAlgorithm() {
+        double[][] costMatrix = new double[3][];
+        costMatrix[0] = new double[] {2F, 3F, 3F};
+        costMatrix[1] = new double[] {3F, 2F, 3F};
+        costMatrix[2] = new double[] {3F, 3F, 2F};
+        int[] result = new JonkerVolgenantAlgorithm(costMatrix).execute();
+        assertThat(result[0], is(0));
+        assertThat(result[1], is(1));
+        assertThat(result[2], is(2));
+
+        Random random = new Random(42);
+        for (int k = 0; k < 200; k++) {
+            double[][] costs = new double[1 + random.nextInt(12)][1 + random.nextInt(12)];
+            for (double[] row : costs)
+                for (int j = 0; j < row.length; j++)
+                    row[j] = random.nextInt(5) + random.nextDouble();
+            int[] expected = new HungarianAlgorithm(costs).execute();
+            int[] actual = new JonkerVolgenantAlgorithm(costs).execute();
+            assertThat(actual.length, is(expected.length));
+            assertThat(assignedJobs(actual), is(assignedJobs(expected)));
+            assertEquals(cost(costs, expected), cost(costs, actual), 1e-9);
+        }
+    }
+
+    @Test
+    public void testSparseJonkerVolgenantAlgorithm() {
+        // Worker 0 can take jobs 0 and 1, worker 1 only job 0, worker 2 only job 2.
+        int[] workerStart = {0, 2, 3, 4};
+        int[] jobs = {0, 1, 0, 2};
+        double[] costs = {1, 5, 2, 1};
+        int[] result = new JonkerVolgenantAlgorithm(3, 3, workerStart, jobs, costs).execute();
+        assertThat(result[0], is(1));
+        assertThat(result[1], is(0));
+        assertThat(result[2], is(2));
+
+        Random random = new Random(42);
+        for (int k = 0; k < 200; k++) {
+            int size = 1 + random.nextInt(12);
+            double[][] dense = new double[size][size];
+            int[] start = new int[size + 1];
+            int[] candidates = new int[size * size];
+            double[] candidateCosts = new double[size * size];
+            int e = 0;
+            for (int i = 0; i < size; i++) {
+                start[i] = e;
+                for (int j = 0; j < size; j++) {
+                    // The diagonal is always allowed, so that all the workers can be assigned.
+                    dense[i][j] = i == j || random.nextInt(3) == 0 ? random.nextInt(5) + random.nextDouble() : 1e6;
+                    if (dense[i][j] < 1e6) {
+                        candidates[e] = j;
+                        candidateCosts[e++] = dense[i][j];
+                    }
+                }
+            }
+            start[size] = e;
+            int[] expected = new HungarianAlgorithm(dense).execute();
+            int[] actual = new JonkerVolgenantAlgorithm(size, size, start, candidates, candidateCosts).execute();
+            assertThat(assignedJobs(actual), is(size));
+            assertEquals(cost(dense, expected), cost(dense, actual), 1e-9);
+        }
+    }
+
+    private static int assignedJobs(int[] assignment) {
+        int assigned = 0;
+        for (int job : assignment)
+            if (job != -1)
+                assigned++;
+        return assigned;
+    }
+
+    private static double cost(double[][] costs, int[] assignment) {
+        double cost = 0;
+        for (int i = 0; i < assignment.length; i++)
+            if (assignment[i] != -1)
+                cost += costs[i][assignment[i]];
+        return cost;
+    }
 }
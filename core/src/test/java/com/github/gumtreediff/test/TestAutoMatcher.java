@@ -0,0 +1,70 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2011-2016 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2011-2016 Floréal Morandat <florealm@gmail.com>
+ */
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.matchers.AutoMatcher;
+import com.github.gumtreediff.matchers.CompositeMatchers;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matchers;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.utils.Pair;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAutoMatcher {
+    @Test
+    public void testSmallTreesUseRted() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        ITree src = trees.first.getRoot();
+        ITree dst = trees.second.getRoot();
+        AutoMatcher matcher = new AutoMatcher();
+        MappingStore ms = matcher.match(src, dst);
+        assertEquals(AutoMatcher.Pipeline.RTEDACDEF, matcher.getDecision().pipeline);
+        assertEquals(new CompositeMatchers.Rtedacdef().match(src, dst).size(), ms.size());
+    }
+
+    @Test
+    public void testLatencyTarget() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        ITree src = trees.first.getRoot();
+        ITree dst = trees.second.getRoot();
+        double target = AutoMatcher.LATENCY_TARGET;
+        AutoMatcher.LATENCY_TARGET = 0;
+        AutoMatcher.Decision decision = AutoMatcher.decide(src, dst);
+        AutoMatcher.LATENCY_TARGET = target;
+        assertEquals(AutoMatcher.Pipeline.GUMTREE_PARTITION, decision.pipeline);
+    }
+
+    @Test
+    public void testOverlap() {
+        ITree src = TreeLoader.getDummyBig();
+        assertEquals(1D, AutoMatcher.decide(src, src.deepCopy()).overlap, 0D);
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        double overlap = AutoMatcher.decide(trees.first.getRoot(), trees.second.getRoot()).overlap;
+        assertTrue(overlap > 0D && overlap < 1D);
+    }
+
+    @Test
+    public void testRegistered() {
+        assertTrue(Matchers.getInstance().getMatcher("auto") instanceof AutoMatcher);
+    }
+}
@@ -23,10 +23,18 @@ package com.github.gumtreediff.test;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
 import com.github.gumtreediff.matchers.heuristic.cd.ChangeDistillerLeavesMatcher;
+import com.github.gumtreediff.matchers.heuristic.cd.ChangeDistillerParallelLeavesMatcher;
+import com.github.gumtreediff.matchers.heuristic.cd.LabelTrigramIndex;
 import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.utils.Pair;
 import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.tree.TypeSet;
 import org.junit.jupiter.api.Test;
+import org.simmetrics.StringMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -44,4 +52,51 @@ public class TestCdMatcher {
         assertTrue(mappings.has(src.getChild(1), dst.getChild(0)));
     }
 
+    @Test
+    public void testParallelLeafMatcher() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getCdCustomPair();
+        ITree src = trees.first.getRoot();
+        ITree dst = trees.second.getRoot();
+        MappingStore mappings = new ChangeDistillerParallelLeavesMatcher().match(src, dst);
+        assertEquals(2, mappings.size());
+        assertTrue(mappings.has(src.getChild(0), dst.getChild(1)));
+        assertTrue(mappings.has(src.getChild(1), dst.getChild(0)));
+    }
+
+    @Test
+    public void testLabelTrigramSimilarity() {
+        String[] labels = {"", "a", "foo", "fooo", "bar", "foobar", "barfoo", "aaaa", "aa", "a#b", "##"};
+        for (String first : labels)
+            for (String second : labels)
+                assertEquals((double) StringMetrics.qGramsDistance().compare(first, second),
+                        LabelTrigramIndex.similarity(first, second), 1e-6, first + " / " + second);
+    }
+
+    @Test
+    public void testLabelTrigramIndex() {
+        TreeContext ctx = new TreeContext.TreeContextImpl();
+        String[] labels = {"foo", "", "bar", "foobar", "fo", "", "barfoo", "oof"};
+        List<ITree> trees = new ArrayList<>();
+        for (String label : labels)
+            trees.add(ctx.createTree(TypeSet.type("leaf"), label));
+        LabelTrigramIndex.Query query = new LabelTrigramIndex(trees).newQuery();
+        for (double threshold : new double[] {-1.0, 0.0, 0.5}) {
+            for (String label : labels) {
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < labels.length; i++)
+                    if (LabelTrigramIndex.similarity(label, labels[i]) > threshold)
+                        expected.add(i);
+                List<Integer> actual = new ArrayList<>();
+                query.forEachCandidate(label, threshold, (id, sim) -> {
+                    assertEquals(LabelTrigramIndex.similarity(label, labels[id]), sim, 1e-9);
+                    actual.add(id);
+                });
+                assertEquals(expected, actual, label + " " + threshold);
+            }
+        }
+
+        List<Integer> empty = new ArrayList<>();
+        query.forEachCandidate("", 0.5, (id, sim) -> empty.add(id));
+        assertEquals(Arrays.asList(1, 5), empty);
+    }
 }
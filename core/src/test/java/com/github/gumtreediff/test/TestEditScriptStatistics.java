@@ -0,0 +1,115 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.actions.ChawatheScriptGenerator;
+import com.github.gumtreediff.actions.EditScript;
+import com.github.gumtreediff.actions.EditScriptStatistics;
+import com.github.gumtreediff.actions.model.*;
+import com.github.gumtreediff.matchers.CompositeMatchers;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.tree.Type;
+import com.github.gumtreediff.tree.TypeSet;
+import com.github.gumtreediff.utils.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestEditScriptStatistics {
+    @Test
+    public void testWithActionExample() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        ITree src = trees.first.getRoot();
+        ITree dst = trees.second.getRoot();
+        MappingStore ms = new MappingStore(src, dst);
+        ms.addMapping(src, dst);
+        ms.addMapping(src.getChild(1), dst.getChild(0));
+        ms.addMapping(src.getChild("1.0"), dst.getChild("0.0"));
+        ms.addMapping(src.getChild("1.1"), dst.getChild("0.1"));
+        ms.addMapping(src.getChild(0), dst.getChild(1).getChild(0));
+        ms.addMapping(src.getChild("0.0"), dst.getChild("1.0.0"));
+        ms.addMapping(src.getChild(4), dst.getChild(3));
+        ms.addMapping(src.getChild("4.0"), dst.getChild("3.0.0.0"));
+        EditScriptStatistics stats = new EditScriptStatistics(ms);
+        assertEquals(5, stats.getInserted());
+        assertEquals(3, stats.getDeleted());
+        assertEquals(1, stats.getUpdated());
+        assertEquals(2, stats.getMoved());
+        assertSameCounts(ms);
+    }
+
+    @Test
+    public void testWithMatchedPairs() {
+        assertSameCounts(TreeLoader.getGumtreePair());
+        assertSameCounts(TreeLoader.getDummyPair());
+        assertSameCounts(TreeLoader.getCdCustomPair());
+        assertSameCounts(TreeLoader.getZsCustomPair());
+        assertSameCounts(TreeLoader.getZsSlidePair());
+    }
+
+    @Test
+    public void testWithSwappedSiblings() {
+        TreeContext ctx = new TreeContext.TreeContextImpl();
+        ITree src = ctx.createTree(TypeSet.type("root"), "");
+        src.addChild(ctx.createTree(TypeSet.type("a"), "foo"));
+        src.addChild(ctx.createTree(TypeSet.type("b"), "bar"));
+        ITree dst = ctx.createTree(TypeSet.type("root"), "");
+        dst.addChild(ctx.createTree(TypeSet.type("b"), "bar"));
+        dst.addChild(ctx.createTree(TypeSet.type("a"), "foo"));
+        MappingStore ms = new MappingStore(src, dst);
+        ms.addMapping(src, dst);
+        ms.addMapping(src.getChild(0), dst.getChild(1));
+        ms.addMapping(src.getChild(1), dst.getChild(0));
+        EditScriptStatistics stats = new EditScriptStatistics(ms);
+        assertEquals(1, stats.getMoved());
+        assertEquals(1, stats.getTotal());
+        assertEquals(new ChawatheScriptGenerator().computeActions(ms).size(), stats.getTotal());
+        assertSameCounts(ms);
+    }
+
+    private static void assertSameCounts(Pair<TreeContext, TreeContext> trees) {
+        assertSameCounts(new CompositeMatchers.ClassicGumtree().match(trees.first.getRoot(), trees.second.getRoot()));
+    }
+
+    private static void assertSameCounts(MappingStore ms) {
+        EditScriptStatistics stats = new EditScriptStatistics(ms);
+        EditScript actions = new ChawatheScriptGenerator().computeActions(ms);
+        Map<Class<?>, Integer> counts = new HashMap<>();
+        Map<Type, Integer> moves = new HashMap<>();
+        for (Action a : actions) {
+            counts.merge(a.getClass(), 1, Integer::sum);
+            if (a instanceof Move)
+                moves.merge(a.getNode().getType(), 1, Integer::sum);
+        }
+        assertEquals(counts.getOrDefault(Insert.class, 0).intValue(), stats.getInserted());
+        assertEquals(counts.getOrDefault(Delete.class, 0).intValue(), stats.getDeleted());
+        assertEquals(counts.getOrDefault(Update.class, 0).intValue(), stats.getUpdated());
+        assertEquals(counts.getOrDefault(Move.class, 0).intValue(), stats.getMoved());
+        assertEquals(actions.size(), stats.getTotal());
+        for (Type type : stats.getTypes())
+            assertEquals(moves.getOrDefault(type, 0).intValue(), stats.getMoved(type));
+    }
+}
@@ -20,18 +20,117 @@
 
 package com.github.gumtreediff.test;
 
+import com.github.gumtreediff.actions.ChawatheScriptGenerator;
+import com.github.gumtreediff.actions.model.Action;
+import com.github.gumtreediff.matchers.CompositeMatchers;
 import com.github.gumtreediff.matchers.Mapping;
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.PartitionMatcher;
 import com.github.gumtreediff.matchers.heuristic.gt.AbstractBottomUpMatcher;
+import com.github.gumtreediff.matchers.heuristic.gt.CliqueSubtreeMatcher;
 import com.github.gumtreediff.matchers.heuristic.gt.GreedyBottomUpMatcher;
 import com.github.gumtreediff.matchers.heuristic.gt.GreedySubtreeMatcher;
+import com.github.gumtreediff.matchers.heuristic.gt.HungarianSubtreeMatcher;
+import com.github.gumtreediff.matchers.heuristic.gt.SiblingsMappingComparator;
 import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.utils.Pair;
 import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.tree.TypeSet;
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TestGumtreeMatcher {
+    @Test
+    public void testIdenticalTrees() {
+        ITree t1 = TreeLoader.getDummyBig();
+        ITree t2 = t1.deepCopy();
+        MappingStore ms = new CompositeMatchers.ChangeDistiller().match(t1, t2);
+        assertEquals(t1.getMetrics().size(), ms.size());
+        Iterator<ITree> it = t2.preOrder().iterator();
+        for (ITree t : t1.preOrder())
+            assertTrue(ms.has(t, it.next()));
+    }
+
+    @Test
+    public void testPartitionMatcher() {
+        ITree t1 = TreeLoader.getDummyBig();
+        ITree t2 = t1.deepCopy();
+        t2.getChild("2.0.0.1").setLabel("foo");
+        int threshold = PartitionMatcher.SIZE_THRESHOLD;
+        PartitionMatcher.SIZE_THRESHOLD = 2;
+        MappingStore ms = new CompositeMatchers.PartitionGumtree().match(t1, t2);
+        PartitionMatcher.SIZE_THRESHOLD = threshold;
+        assertEquals(t1.getMetrics().size(), ms.size());
+        Iterator<ITree> it = t2.preOrder().iterator();
+        for (ITree t : t1.preOrder())
+            assertTrue(ms.has(t, it.next()));
+    }
+
+    @Test
+    public void testPartitionMatcherWithMoves() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        ITree t1 = trees.first.getRoot();
+        ITree t2 = trees.second.getRoot();
+        int threshold = PartitionMatcher.SIZE_THRESHOLD;
+        PartitionMatcher.SIZE_THRESHOLD = 2;
+        MappingStore ms = new CompositeMatchers.PartitionGumtree().match(t1, t2);
+        PartitionMatcher.SIZE_THRESHOLD = threshold;
+        MappingStore expected = new CompositeMatchers.ClassicGumtree().match(t1, t2);
+        assertTrue(ms.has(t1, t2));
+        for (Mapping m : ms) {
+            assertTrue(m.first.hasSameType(m.second));
+            assertSame(m.second, ms.getDstForSrc(m.first));
+            assertSame(m.first, ms.getSrcForDst(m.second));
+        }
+        assertTrue(ms.size() >= expected.size());
+    }
+
+    @Test
+    public void testPartitionMatcherKeepsTheContainersOfMembers() {
+        TreeContext ctx = new TreeContext.TreeContextImpl();
+        ITree t1 = ctx.createTree(TypeSet.type("root"), "");
+        for (int i = 0; i < 3; i++) {
+            ITree pkg = ctx.createTree(TypeSet.type("package"), "");
+            for (int j = 0; j < 3; j++) {
+                ITree type = ctx.createTree(TypeSet.type("type"), "T" + i + j);
+                for (int k = 0; k < 3; k++) {
+                    ITree method = ctx.createTree(TypeSet.type("method"), "m" + i + j + k);
+                    ITree body = ctx.createTree(TypeSet.type("return"), "");
+                    body.addChild(ctx.createTree(TypeSet.type("name"), "x" + k));
+                    method.addChild(body);
+                    type.addChild(method);
+                }
+                pkg.addChild(type);
+            }
+            t1.addChild(pkg);
+        }
+        ITree t2 = t1.deepCopy();
+        for (ITree pkg : t2.getChildren())
+            for (ITree type : pkg.getChildren())
+                type.getChild("0.0.0").setLabel("y");
+        t2.insertChild(ctx.createTree(TypeSet.type("package"), ""), 0);
+
+        int threshold = PartitionMatcher.SIZE_THRESHOLD;
+        PartitionMatcher.SIZE_THRESHOLD = 20;
+        MappingStore ms = new CompositeMatchers.PartitionGumtree().match(t1, t2);
+        PartitionMatcher.SIZE_THRESHOLD = threshold;
+        MappingStore expected = new CompositeMatchers.ClassicGumtree().match(t1, t2);
+        for (int i = 0; i < 3; i++)
+            assertTrue(ms.has(t1.getChild(i), t2.getChild(i + 1)));
+        List<String> actions = new ArrayList<>();
+        for (Action a : new ChawatheScriptGenerator().computeActions(ms))
+            actions.add(a.toString());
+        List<String> expectedActions = new ArrayList<>();
+        for (Action a : new ChawatheScriptGenerator().computeActions(expected))
+            expectedActions.add(a.toString());
+        assertEquals(expectedActions, actions);
+    }
+
     @Test
     public void testMinHeightThreshold() {
         Pair<TreeContext, TreeContext> trees = TreeLoader.getGumtreePair();
@@ -54,6 +153,166 @@ public class TestGumtreeMatcher {
         assertTrue(ms1.has(t1.getChild("1.1"), t2.getChild("0.1")));
     }
 
+    @Test
+    public void testAmbiguousSubtrees() {
+        TreeContext ctx = new TreeContext.TreeContextImpl();
+        ITree t1 = ctx.createTree(TypeSet.type("root"), "");
+        ITree t2 = ctx.createTree(TypeSet.type("root"), "foo");
+        for (int i = 0; i < 50; i++)
+            t1.addChild(getter(ctx));
+        for (int i = 0; i < 60; i++)
+            t2.addChild(getter(ctx));
+        MappingStore ms = new GreedySubtreeMatcher().match(t1, t2);
+        assertEquals(150, ms.size());
+        for (ITree getter : t1.getChildren()) {
+            assertTrue(ms.isSrcMapped(getter));
+            assertSame(ms.getDstForSrc(getter).getChild(0), ms.getDstForSrc(getter.getChild(0)));
+        }
+    }
+
+    @Test
+    public void testHungarianSolvers() {
+        assertSameHungarianSolutions(50, 60);
+        assertSameHungarianSolutions(60, 50);
+    }
+
+    private static void assertSameHungarianSolutions(int srcGetters, int dstGetters) {
+        TreeContext ctx = new TreeContext.TreeContextImpl();
+        ITree t1 = ctx.createTree(TypeSet.type("root"), "");
+        ITree t2 = ctx.createTree(TypeSet.type("root"), "");
+        for (int i = 0; i < srcGetters; i++)
+            t1.addChild(getter(ctx));
+        for (int i = 0; i < dstGetters; i++)
+            t2.addChild(getter(ctx));
+        MappingStore dense = new HungarianSubtreeMatcher().match(t1, t2);
+        int threshold = HungarianSubtreeMatcher.DENSE_SOLVER_MAX_SIZE;
+        HungarianSubtreeMatcher.DENSE_SOLVER_MAX_SIZE = 0;
+        MappingStore sparse = new HungarianSubtreeMatcher().match(t1, t2);
+        HungarianSubtreeMatcher.DENSE_SOLVER_MAX_SIZE = threshold;
+        assertEquals(3 * Math.min(srcGetters, dstGetters), dense.size());
+        assertEquals(dense.size(), sparse.size());
+        for (Mapping m : sparse)
+            assertEquals(m.first.positionInParent(), m.second.positionInParent());
+    }
+
+    @Test
+    public void testLastChanceMatchOfDissimilarRoots() {
+        TreeContext ctx = new TreeContext.TreeContextImpl();
+        ITree t1 = ctx.createTree(TypeSet.type("root"), "");
+        ITree t2 = ctx.createTree(TypeSet.type("root"), "");
+        for (int i = 0; i < 20; i++) {
+            t1.addChild(statement(ctx, "foo" + i));
+            t2.addChild(statement(ctx, "bar" + i));
+        }
+        for (int i = 0; i < 30; i++)
+            t2.addChild(statement(ctx, "baz" + i));
+        int sizeThreshold = AbstractBottomUpMatcher.SIZE_THRESHOLD;
+        double simThreshold = AbstractBottomUpMatcher.SIM_THRESHOLD;
+        AbstractBottomUpMatcher.SIZE_THRESHOLD = 1000;
+        AbstractBottomUpMatcher.SIM_THRESHOLD = 0.5;
+        assertEquals(41, new CompositeMatchers.ClassicGumtree().match(t1, t2).size());
+        assertEquals(41, new CompositeMatchers.CompleteGumtreeMatcher().match(t1, t2).size());
+        AbstractBottomUpMatcher.SIZE_THRESHOLD = sizeThreshold;
+        AbstractBottomUpMatcher.SIM_THRESHOLD = simThreshold;
+    }
+
+    @Test
+    public void testLastChanceMatchKeepsTheMatchedPair() {
+        TreeContext ctx = new TreeContext.TreeContextImpl();
+        ITree t1 = ctx.createTree(TypeSet.type("a"), "");
+        ITree t1b = ctx.createTree(TypeSet.type("b"), "");
+        t1.addChild(t1b);
+        ITree t1c = ctx.createTree(TypeSet.type("c"), "");
+        t1b.addChild(t1c);
+        ITree t1a = ctx.createTree(TypeSet.type("a"), "");
+        t1c.addChild(t1a);
+        t1a.addChild(ctx.createTree(TypeSet.type("a"), "l0"));
+        ITree t2 = ctx.createTree(TypeSet.type("a"), "");
+        ITree t2b = ctx.createTree(TypeSet.type("b"), "");
+        t2.addChild(t2b);
+        t2b.addChild(ctx.createTree(TypeSet.type("b"), "l1"));
+        t2b.addChild(t1c.deepCopy());
+
+        MappingStore ms = new CompositeMatchers.ClassicGumtree().match(t1, t2);
+        int mappedDsts = 0;
+        for (ITree t : t2.preOrder())
+            if (ms.isDstMapped(t)) {
+                assertSame(t, ms.getDstForSrc(ms.getSrcForDst(t)));
+                mappedDsts++;
+            }
+        assertEquals(ms.size(), mappedDsts);
+    }
+
+    private static ITree statement(TreeContext ctx, String name) {
+        ITree statement = ctx.createTree(TypeSet.type("statement"), "");
+        statement.addChild(ctx.createTree(TypeSet.type("name"), name));
+        return statement;
+    }
+
+    @Test
+    public void testCliqueMappingsOrderedBySimilarity() {
+        assertCliqueMappings("a", "b");
+        assertCliqueMappings("b", "a");
+    }
+
+    private static void assertCliqueMappings(String... dstNames) {
+        TreeContext ctx = new TreeContext.TreeContextImpl();
+        ITree t1 = ctx.createTree(TypeSet.type("root"), "");
+        t1.addChild(block(ctx, "a"));
+        t1.addChild(block(ctx, "b"));
+        ITree t2 = ctx.createTree(TypeSet.type("root"), "");
+        for (String name : dstNames) {
+            ITree block = block(ctx, name);
+            block.addChild(ctx.createTree(TypeSet.type("break"), ""));
+            t2.addChild(block);
+        }
+        MappingStore ms = new CliqueSubtreeMatcher().match(t1, t2);
+        // The identical getters are mapped inside the blocks mapped by their conditions.
+        for (ITree block : t2.getChildren()) {
+            ITree srcBlock = ms.getSrcForDst(block.getChild("1.0.0")).getParent().getParent().getParent();
+            assertSame(srcBlock.getChild(0), ms.getSrcForDst(block.getChild(0)));
+        }
+        for (Mapping m : ms)
+            assertTrue(t1.getDescendants().contains(m.first) && t2.getDescendants().contains(m.second));
+    }
+
+    private static ITree block(TreeContext ctx, String name) {
+        ITree block = ctx.createTree(TypeSet.type("block"), "");
+        block.addChild(getter(ctx));
+        ITree condition = ctx.createTree(TypeSet.type("if"), "");
+        ITree statement = ctx.createTree(TypeSet.type("return"), "");
+        statement.addChild(ctx.createTree(TypeSet.type("name"), name));
+        condition.addChild(statement);
+        block.addChild(condition);
+        return block;
+    }
+
+    private static ITree getter(TreeContext ctx) {
+        ITree getter = ctx.createTree(TypeSet.type("method"), "get");
+        ITree body = ctx.createTree(TypeSet.type("return"), "");
+        body.addChild(ctx.createTree(TypeSet.type("name"), "x"));
+        getter.addChild(body);
+        return getter;
+    }
+
+    @Test
+    public void testMappingComparatorOnEqualMappings() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getGumtreePair();
+        ITree t1 = trees.first.getRoot();
+        ITree t2 = trees.second.getRoot();
+        List<Mapping> ambiguousMappings = new ArrayList<>();
+        ambiguousMappings.add(new Mapping(t1.getChild(1), t2.getChild(0)));
+        ambiguousMappings.add(new Mapping(t1.getChild(1), t2.getChild(2)));
+        SiblingsMappingComparator comparator = new SiblingsMappingComparator(
+                ambiguousMappings, new MappingStore(t1, t2), Math.max(t1.getMetrics().size(), t2.getMetrics().size()));
+        Mapping first = new Mapping(t1.getChild(1), t2.getChild(0));
+        Mapping second = new Mapping(t1.getChild(1), t2.getChild(2));
+        assertEquals(0, comparator.compare(first, new Mapping(t1.getChild(1), t2.getChild(0))));
+        assertEquals(-comparator.compare(first, second), comparator.compare(second, first));
+        comparator.sort();
+        assertEquals(comparator.compare(first, second) < 0 ? first : second, ambiguousMappings.get(0));
+    }
+
     @Test
     public void testSimAndSizeThreshold() {
         Pair<ITree, ITree> trees = TreeLoader.getBottomUpPair();
@@ -0,0 +1,83 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.actions.ChawatheScriptGenerator;
+import com.github.gumtreediff.actions.EditScript;
+import com.github.gumtreediff.io.TreeIoUtils;
+import com.github.gumtreediff.matchers.CompositeMatchers;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.utils.Pair;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestJfrEvents {
+    @Test
+    public void testEvents() throws Exception {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        List<RecordedEvent> events;
+        Path dump = Files.createTempFile("gumtree", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("gumtree.Generation");
+            recording.enable("gumtree.Matching");
+            recording.enable("gumtree.ActionComputation");
+            recording.enable("gumtree.Serialization");
+            recording.start();
+            String xml = TreeIoUtils.toXml(trees.first).toString();
+            TreeContext src = TreeIoUtils.fromXml().generateFrom().string(xml);
+            MappingStore ms = new CompositeMatchers.ClassicGumtree().match(src.getRoot(), trees.second.getRoot());
+            EditScript actions = new ChawatheScriptGenerator().computeActions(ms);
+            recording.stop();
+            recording.dump(dump);
+            events = RecordingFile.readAllEvents(dump);
+
+            int size = src.getRoot().getMetrics().size();
+            assertEquals(size, get(events, "gumtree.Serialization").get(0).getInt("size"));
+            assertEquals("XmlFormatter", get(events, "gumtree.Serialization").get(0).getString("format"));
+            assertEquals(size, get(events, "gumtree.Generation").get(0).getInt("size"));
+            assertEquals("xml", get(events, "gumtree.Generation").get(0).getString("generator"));
+
+            List<RecordedEvent> phases = get(events, "gumtree.Matching");
+            assertEquals(2, phases.size());
+            assertEquals("gumtree", phases.get(0).getString("matcher"));
+            assertEquals("GreedySubtreeMatcher", phases.get(0).getString("phase"));
+            assertEquals(size, phases.get(0).getInt("srcSize"));
+            assertEquals(ms.size(), phases.get(1).getInt("mappingsAfter"));
+
+            assertEquals(actions.size(), get(events, "gumtree.ActionComputation").get(0).getInt("actions"));
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
+    private static List<RecordedEvent> get(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+}
@@ -22,11 +22,14 @@ package com.github.gumtreediff.test;
 
 import com.github.gumtreediff.matchers.CompositeMatchers;
 import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.optimizations.IdenticalSubtreeMatcherThetaA;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Tree;
 import com.github.gumtreediff.utils.Pair;
 import com.github.gumtreediff.tree.TreeContext;
 import org.junit.jupiter.api.Test;
 
+import static com.github.gumtreediff.tree.TypeSet.type;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -74,4 +77,32 @@ public class TestOptimizedMatchers {
         assertTrue(mappings.has(src.getChild(0).getChild(2), dst.getChild(1)));
     }
 
+    @Test
+    public void testIdenticalSubtreeMatcherThetaA() {
+        // The two leaves, hence their parents, have the same hash in the tree metrics.
+        ITree src = new Tree(type("r"));
+        ITree p1 = newParent(new Tree(type("T19"), "l69"));
+        ITree p2 = newParent(new Tree(type("T17"), "l89"));
+        src.addChild(p1);
+        src.addChild(p2);
+        ITree dst = new Tree(type("r"));
+        ITree q2 = newParent(new Tree(type("T17"), "l89"));
+        ITree q1 = newParent(new Tree(type("T19"), "l69"));
+        dst.addChild(q2);
+        dst.addChild(q1);
+        assertEquals(p1.getMetrics().hash(), p2.getMetrics().hash());
+
+        MappingStore mappings = new IdenticalSubtreeMatcherThetaA().match(src, dst);
+        assertEquals(4, mappings.size());
+        assertTrue(mappings.has(p1, q1));
+        assertTrue(mappings.has(p1.getChild(0), q1.getChild(0)));
+        assertTrue(mappings.has(p2, q2));
+        assertTrue(mappings.has(p2.getChild(0), q2.getChild(0)));
+    }
+
+    private static ITree newParent(ITree child) {
+        ITree parent = new Tree(type("p"));
+        parent.addChild(child);
+        return parent;
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * This file is part of GumTree.
+ *
+ * GumTree is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GumTree is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GumTree.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2020 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package com.github.gumtreediff.test;
+
+import com.github.gumtreediff.matchers.CompositeMatchers;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.PartitionMatcher;
+import com.github.gumtreediff.matchers.PhaseStatistics;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import com.github.gumtreediff.utils.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPhaseStatistics {
+    @Test
+    public void testCompositeMatcherPhases() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        ITree src = trees.first.getRoot();
+        ITree dst = trees.second.getRoot();
+        PhaseStatistics statistics = new PhaseStatistics();
+        CompositeMatchers.ClassicGumtree matcher = new CompositeMatchers.ClassicGumtree();
+        matcher.setListener(statistics);
+        MappingStore ms = matcher.match(src, dst);
+
+        List<PhaseStatistics.Phase> phases = statistics.getPhases();
+        assertEquals(2, phases.size());
+        assertEquals("GreedySubtreeMatcher", phases.get(0).name);
+        assertEquals("GreedyBottomUpMatcher", phases.get(1).name);
+        int added = 0;
+        for (PhaseStatistics.Phase p : phases) {
+            assertEquals(1, p.getRuns());
+            assertTrue(p.getWallTime() >= 0);
+            added += p.getMappingsAdded();
+        }
+        assertEquals(ms.size(), added);
+        assertEquals(3, statistics.toCsv().split("\n").length);
+    }
+
+    @Test
+    public void testUnchangedTreesHaveNoPhase() {
+        ITree src = TreeLoader.getDummyBig();
+        PhaseStatistics statistics = new PhaseStatistics();
+        CompositeMatchers.ClassicGumtree matcher = new CompositeMatchers.ClassicGumtree();
+        matcher.setListener(statistics);
+        matcher.match(src, src.deepCopy());
+        assertTrue(statistics.getPhases().isEmpty());
+    }
+
+    @Test
+    public void testListenerForwardedByPartitionMatcher() {
+        ITree src = TreeLoader.getDummyBig();
+        ITree dst = src.deepCopy();
+        dst.getChild("2.0.0.1").setLabel("foo");
+        PhaseStatistics statistics = new PhaseStatistics();
+        CompositeMatchers.PartitionGumtree matcher = new CompositeMatchers.PartitionGumtree();
+        matcher.setListener(statistics);
+        int threshold = PartitionMatcher.SIZE_THRESHOLD;
+        PartitionMatcher.SIZE_THRESHOLD = 2;
+        matcher.match(src, dst);
+        PartitionMatcher.SIZE_THRESHOLD = threshold;
+        assertFalse(statistics.getPhases().isEmpty());
+        statistics.clear();
+        assertTrue(statistics.getPhases().isEmpty());
+    }
+}
@@ -20,15 +20,26 @@
 
 package com.github.gumtreediff.test;
 
+import com.github.gumtreediff.matchers.CompositeMatchers;
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.optimal.CostEstimator;
+import com.github.gumtreediff.matchers.optimal.rted.FlatRtedAlgorithm;
+import com.github.gumtreediff.matchers.optimal.rted.RtedAlgorithm;
 import com.github.gumtreediff.matchers.optimal.rted.RtedMatcher;
 import com.github.gumtreediff.tree.ITree;
 import com.github.gumtreediff.utils.Pair;
 import com.github.gumtreediff.tree.TreeContext;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestRtedMatcher {
@@ -47,4 +58,73 @@ public class TestRtedMatcher {
         assertTrue(mappings.has(src.getChild(0).getChild(2), dst.getChild(2)));
     }
 
+    @Test
+    public void testCostEstimator() {
+        ITree small = TreeLoader.getZsSlidePair().first.getRoot();
+        ITree big = TreeLoader.getDummyBig();
+        CostEstimator.Estimate smallCost = CostEstimator.estimateRted(small, small);
+        CostEstimator.Estimate bigCost = CostEstimator.estimateRted(big, big);
+        assertTrue(smallCost.bytes < bigCost.bytes);
+        assertTrue(smallCost.operations < bigCost.operations);
+        assertTrue(CostEstimator.estimateZs(big, big).bytes < bigCost.bytes);
+        assertTrue(bigCost.isWithinBudget());
+
+        long budget = CostEstimator.MEMORY_BUDGET;
+        CostEstimator.MEMORY_BUDGET = 0;
+        assertFalse(smallCost.isWithinBudget());
+        CostEstimator.MEMORY_BUDGET = budget;
+    }
+
+    @Test
+    public void testRtedMatcherOverBudget() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getActionPair();
+        ITree src = trees.first.getRoot();
+        ITree dst = trees.second.getRoot();
+        long budget = CostEstimator.MEMORY_BUDGET;
+        CostEstimator.MEMORY_BUDGET = 0;
+        MappingStore mappings = new RtedMatcher().match(src, dst);
+        MappingStore expected = new CompositeMatchers.ClassicGumtree().match(src, dst);
+        CostEstimator.MEMORY_BUDGET = budget;
+        assertEquals(expected.size(), mappings.size());
+    }
+
+    @Test
+    public void testFlatRtedAlgorithm() {
+        List<Pair<ITree, ITree>> pairs = new ArrayList<>();
+        for (Pair<TreeContext, TreeContext> trees : Arrays.asList(TreeLoader.getZsSlidePair(),
+                TreeLoader.getZsCustomPair(), TreeLoader.getActionPair(), TreeLoader.getGumtreePair(),
+                TreeLoader.getCdCustomPair()))
+            pairs.add(new Pair<>(trees.first.getRoot(), trees.second.getRoot()));
+        pairs.add(new Pair<>(TreeLoader.getDummyBig(), TreeLoader.getDummySrc()));
+        pairs.add(new Pair<>(TreeLoader.getDummyDst(), TreeLoader.getDummyBig()));
+
+        // The same instances are reused for all the pairs.
+        FlatRtedAlgorithm sequential = new FlatRtedAlgorithm(1D, 1D, 1D);
+        FlatRtedAlgorithm parallel = new FlatRtedAlgorithm(1D, 1D, 1D);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        parallel.setPool(pool);
+        for (Pair<ITree, ITree> pair : pairs) {
+            RtedAlgorithm expected = new RtedAlgorithm(1D, 1D, 1D);
+            expected.init(pair.first, pair.second);
+            expected.computeOptimalStrategy();
+            double expectedDistance = expected.nonNormalizedTreeDist();
+            List<Integer> expectedMapping = new ArrayList<>();
+            for (int[] m : expected.computeEditMapping()) {
+                if (m[0] != 0 && m[1] != 0) {
+                    expectedMapping.add(m[0] - 1);
+                    expectedMapping.add(m[1] - 1);
+                }
+            }
+
+            for (FlatRtedAlgorithm a : new FlatRtedAlgorithm[] {sequential, parallel}) {
+                a.init(pair.first, pair.second);
+                a.computeOptimalStrategy();
+                assertEquals(expectedDistance, a.nonNormalizedTreeDist(), 0D);
+                assertArrayEquals(expectedMapping.stream().mapToInt(Integer::intValue).toArray(),
+                        a.computeEditMapping());
+                a.clear();
+            }
+        }
+        pool.shutdown();
+    }
 }
@@ -88,6 +88,50 @@ public class TestSequenceAlgorithms {
         assertArrayEquals(new int[] {1, 0}, idx.get(0));
     }
 
+    @Test
+    public void testLinearSpaceLcss() {
+        String s1 = "abcdefgabcdefgaaabbbccc";
+        String s2 = "agcefdggfedcbacbacba";
+        int expected = SequenceAlgorithms.longestCommonSubsequence(s1, s2).size();
+        long maxTableSize = SequenceAlgorithms.MAX_TABLE_SIZE;
+        SequenceAlgorithms.MAX_TABLE_SIZE = 4;
+        List<int[]> idx = SequenceAlgorithms.longestCommonSubsequence(s1, s2);
+        SequenceAlgorithms.MAX_TABLE_SIZE = maxTableSize;
+        assertEquals(expected, idx.size());
+        for (int i = 0; i < idx.size(); i++) {
+            assertEquals(s1.charAt(idx.get(i)[0]), s2.charAt(idx.get(i)[1]));
+            if (i > 0) {
+                assertTrue(idx.get(i - 1)[0] < idx.get(i)[0]);
+                assertTrue(idx.get(i - 1)[1] < idx.get(i)[1]);
+            }
+        }
+    }
+
+    @Test
+    public void testLcssLength() {
+        assertEquals(4, SequenceAlgorithms.longestCommonSubsequenceLength("abcdefg", "agcefd"));
+        assertEquals(0, SequenceAlgorithms.longestCommonSubsequenceLength("abc", ""));
+        assertEquals(0, SequenceAlgorithms.longestCommonSubsequenceLength("abc", "def"));
+        StringBuilder b1 = new StringBuilder();
+        StringBuilder b2 = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            b1.append("ab");
+            b2.append("ba");
+        }
+        assertEquals(399, SequenceAlgorithms.longestCommonSubsequenceLength(b1.toString(), b2.toString()));
+
+        // Distinct characters, the lengths are not computed with the bit-parallel algorithm.
+        StringBuilder b3 = new StringBuilder();
+        StringBuilder b4 = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            b3.append((char) (0x100 + i));
+            if (i % 2 == 0)
+                b4.append((char) (0x100 + i));
+        }
+        assertEquals(150, SequenceAlgorithms.longestCommonSubsequenceLength(b4.toString(), b3.toString()));
+        assertEquals(150, SequenceAlgorithms.longestCommonSubsequenceLength(b3.toString(), b4.toString()));
+    }
+
     @Test
     public void testLcs() {
         String s1 = "abcdefg";
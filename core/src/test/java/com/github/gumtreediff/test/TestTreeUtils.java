@@ -24,6 +24,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import com.github.gumtreediff.tree.*;
 import org.junit.jupiter.api.Test;
@@ -230,4 +231,30 @@ public class TestTreeUtils {
         leaf = srcLeaves.next();
         assertNull(leaf);
     }
+
+    @Test
+    public void testTreeIndex() {
+        ITree root = TreeLoader.getDummyBig();
+        assertTreeIndex(root);
+        assertTreeIndex(root.getChild(0));
+    }
+
+    private static void assertTreeIndex(ITree root) {
+        TreeIndex index = new TreeIndex(root);
+        assertEquals(root.getMetrics().size(), index.size());
+        assertEquals(TreeUtils.preOrder(root), index.preOrder());
+        List<ITree> postOrder = TreeUtils.postOrder(root);
+        assertEquals(postOrder, index.postOrder());
+        for (ITree t : postOrder) {
+            assertEquals(postOrder.indexOf(t), index.id(t));
+            assertEquals(TreeUtils.postOrder(t), index.postOrder(t));
+            assertEquals(t.getDescendants(), index.descendants(t));
+            assertEquals(TreeUtils.postOrder(t).stream().filter(ITree::isLeaf).count(), index.leafCount(t));
+            assertEquals(postOrder.stream().filter(n -> n.getType() == t.getType()).collect(Collectors.toList()),
+                    index.nodesOfType(t.getType()));
+        }
+        assertEquals(postOrder.stream().filter(ITree::isLeaf).collect(Collectors.toList()), index.leaves());
+        assertEquals(postOrder.stream().filter(n -> !n.isLeaf()).collect(Collectors.toList()), index.innerNodes());
+        assertTrue(index.nodesOfType(TypeSet.type("unknown")).isEmpty());
+    }
 }
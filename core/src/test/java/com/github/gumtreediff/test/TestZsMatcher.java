@@ -22,13 +22,17 @@ package com.github.gumtreediff.test;
 
 import com.github.gumtreediff.matchers.MappingStore;
 import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.optimal.zs.BoundedZsMatcher;
 import com.github.gumtreediff.matchers.optimal.zs.ZsMatcher;
 import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.Tree;
+import com.github.gumtreediff.tree.TypeSet;
 import com.github.gumtreediff.utils.Pair;
 import com.github.gumtreediff.tree.TreeContext;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestZsMatcher {
@@ -63,4 +67,50 @@ public class TestZsMatcher {
         assertTrue(mappings.has(src.getChild("0.2"), dst.getChild(2)));
     }
 
+    @Test
+    public void testBoundedMatcherWithLargeBound() {
+        assertSameMappings(TreeLoader.getZsCustomPair());
+        assertSameMappings(TreeLoader.getZsSlidePair());
+    }
+
+    private static void assertSameMappings(Pair<TreeContext, TreeContext> trees) {
+        ITree src = trees.first.getRoot();
+        ITree dst = trees.second.getRoot();
+        MappingStore expected = new ZsMatcher().match(src, dst);
+        MappingStore actual = new BoundedZsMatcher(1D).match(src, dst);
+        assertEquals(expected.asSet(), actual.asSet());
+    }
+
+    @Test
+    public void testBoundedMatcherAbandons() {
+        Pair<TreeContext, TreeContext> trees = TreeLoader.getZsCustomPair();
+        ITree src = trees.first.getRoot();
+        ITree dst = trees.second.getRoot();
+        assertEquals(0, new BoundedZsMatcher(0.1D).match(src, dst).size());
+        assertFalse(new BoundedZsMatcher(0.1D).tryMatch(src, dst, new MappingStore(src, dst)));
+        assertTrue(new BoundedZsMatcher(1D).tryMatch(src, dst, new MappingStore(src, dst)));
+    }
+
+    @Test
+    public void testBoundedMatcherStripsMappedSubtrees() {
+        ITree src = new Tree(TypeSet.type("a"), "");
+        ITree srcFirst = new Tree(TypeSet.type("b"), "foo");
+        srcFirst.addChild(new Tree(TypeSet.type("c"), "bar"));
+        src.addChild(srcFirst);
+        ITree srcSecond = new Tree(TypeSet.type("d"), "baz");
+        src.addChild(srcSecond);
+        ITree dst = new Tree(TypeSet.type("a"), "");
+        ITree dstFirst = srcFirst.deepCopy();
+        dst.addChild(dstFirst);
+        ITree dstSecond = new Tree(TypeSet.type("d"), "qux");
+        dst.addChild(dstSecond);
+
+        MappingStore mappings = new MappingStore(src, dst);
+        mappings.addMappingRecursively(srcFirst, dstFirst);
+        new BoundedZsMatcher(0.5D).match(src, dst, mappings);
+        assertEquals(4, mappings.size());
+        assertTrue(mappings.has(src, dst));
+        assertTrue(mappings.has(srcSecond, dstSecond));
+        assertTrue(mappings.has(srcFirst.getChild(0), dstFirst.getChild(0)));
+    }
 }